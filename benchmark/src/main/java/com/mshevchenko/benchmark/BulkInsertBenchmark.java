@@ -0,0 +1,91 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.client.StockClient;
+import com.mshevchenko.server.StockServer;
+import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rows per second for loading a 100k product catalogue: one autocommit
+ * INSERT per product versus batched inserts in one transaction, directly
+ * on Stock and through INSERT_PRODUCTS over the network (binary payload).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 100000;
+
+    private File file;
+    private Stock stock;
+    private StockServer server;
+    private StockClient client;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        this.file = File.createTempFile("bulkInsertBenchmark", ".db");
+        this.stock = new Stock(this.file.getPath());
+        this.server = new StockServer(4600, this.stock);
+        new Thread(this.server).start();
+        this.client = new StockClient(InetAddress.getLocalHost(), 4600);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        for(Group group : this.stock.getGroups()) {
+            this.stock.deleteGroupById(group.getGroupId());
+        }
+        this.stock.insertGroup(new Group(0, "Group", "Group"));
+        int groupId = this.stock.getGroups().get(0).getGroupId();
+        this.products = new ArrayList<>(ROWS);
+        for(int i = 0; i < ROWS; i++) {
+            this.products.add(new Product(0, groupId, "Product" + i, "Description" + i, "Producer" + i % 100, i % 1000, i % 50));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        this.client.closeSocket();
+        this.server.close();
+        this.stock.close();
+        this.file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int insertProduct() {
+        int inserted = 0;
+        for(Product product : this.products) {
+            inserted += this.stock.insertProduct(product);
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] insertProducts() {
+        return this.stock.insertProducts(this.products);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] insertProductsOverNetwork() throws Exception {
+        return this.client.insertProducts(this.products);
+    }
+
+}
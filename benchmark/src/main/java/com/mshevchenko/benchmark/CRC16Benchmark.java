@@ -0,0 +1,47 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.crc16.CRC16Creator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CRC16Benchmark {
+
+    @Param({"32", "1024", "65536", "1048576", "16777216"})
+    private int length;
+
+    private byte[] bytes;
+    private ByteBuffer direct;
+
+    @Setup
+    public void prepare() {
+        this.bytes = new byte[this.length];
+        new Random(6).nextBytes(this.bytes);
+        this.direct = ByteBuffer.allocateDirect(this.length);
+        this.direct.put(this.bytes).flip();
+    }
+
+    @Benchmark
+    public short bytewise() {
+        return CRC16Creator.createCRC16Bytewise(this.bytes, 0, this.length);
+    }
+
+    @Benchmark
+    public short slicingByEight() {
+        return CRC16Creator.createCRC16(this.bytes, 0, this.length);
+    }
+
+    @Benchmark
+    public short slicingByEightDirectBuffer() {
+        return CRC16Creator.createCRC16(this.direct, 0, this.length);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.client.StockClient;
+import com.mshevchenko.server.StockSelectorServer;
+import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Orders per second for four concurrent pickers whose order lines mostly
+ * hit a handful of popular SKUs: one atomic ORDER_PICK per order versus a
+ * DECREASE_PRODUCT_QUANTITY round trip per line (not atomic), each picker
+ * with its own connection to the selector server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Threads(4)
+@Fork(1)
+public class OrderPickBenchmark {
+
+    private static final int PRODUCTS = 10000;
+    private static final int HOT_PRODUCTS = 10;
+    private static final int LINES = 5;
+
+    @State(Scope.Benchmark)
+    public static class Warehouse {
+
+        private File file;
+        private Stock stock;
+        private StockSelectorServer server;
+        private List<Integer> ids = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void prepare() throws Exception {
+            this.file = File.createTempFile("orderPickBenchmark", ".db");
+            this.stock = new Stock(this.file.getPath());
+            this.stock.insertGroup(new Group(0, "Group", "Group"));
+            int groupId = this.stock.getGroups().get(0).getGroupId();
+            List<Product> products = new ArrayList<>(PRODUCTS);
+            for(int i = 0; i < PRODUCTS; i++) {
+                products.add(new Product(0, groupId, "Product" + i, "Description" + i, "Producer" + i % 100, i % 1000, 1000000000));
+            }
+            this.stock.insertProducts(products);
+            for(Product product : this.stock.getProducts()) {
+                this.ids.add(product.getProductId());
+            }
+            this.server = new StockSelectorServer(4600, this.stock);
+            new Thread(this.server).start();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            this.server.close();
+            this.stock.close();
+            this.file.delete();
+        }
+
+        private Map<Integer, Integer> order() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Map<Integer, Integer> lines = new LinkedHashMap<>();
+            while(lines.size() < LINES) {
+                int index = random.nextInt(10) < 8 ? random.nextInt(HOT_PRODUCTS) : random.nextInt(PRODUCTS);
+                lines.put(this.ids.get(index), 1 + random.nextInt(3));
+            }
+            return lines;
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private StockClient client;
+
+        @Setup(Level.Trial)
+        public void connect(Warehouse warehouse) throws Exception {
+            this.client = new StockClient(InetAddress.getLocalHost(), 4600);
+            this.client.setPayloadFormat(PayloadFormat.BINARY);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            this.client.closeSocket();
+        }
+
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> pickOrder(Warehouse warehouse, Picker picker) throws Exception {
+        return picker.client.pickOrder(warehouse.order());
+    }
+
+    @Benchmark
+    public int decreaseEachLine(Warehouse warehouse, Picker picker) throws Exception {
+        int picked = 0;
+        for(Map.Entry<Integer, Integer> line : warehouse.order().entrySet()) {
+            if(picker.client.decreaseProductQuantity(line.getKey(), line.getValue())) {
+                picked++;
+            }
+        }
+        return picked;
+    }
+
+}
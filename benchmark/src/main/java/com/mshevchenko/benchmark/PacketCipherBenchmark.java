@@ -0,0 +1,74 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.crypto.AesEcbCipher;
+import com.mshevchenko.crypto.SessionHandshake;
+import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.Status;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketCipherBenchmark {
+
+    private static final SecretKey KEY = new SecretKeySpec("RfUjXn2r5u8x/A%D*G-KaPdSgVkYp3s6".getBytes(), "AES");
+
+    @Param({"16", "1024", "65536"})
+    private int messageLength;
+
+    private Packet packet;
+    private PacketCodec ecbCodec;
+    private PacketCodec gcmCodec;
+    private ByteBuffer ecbFrame;
+    private ByteBuffer gcmFrame;
+
+    @Setup
+    public void prepare() throws Exception {
+        this.packet = new Packet(1, Status.CLIENT, Commands.INCREASE_PRODUCT_QUANTITY, "x".repeat(this.messageLength));
+        this.ecbCodec = new PacketCodec(AesEcbCipher.DEFAULT);
+        SessionHandshake client = new SessionHandshake();
+        SessionHandshake server = new SessionHandshake();
+        this.gcmCodec = new PacketCodec(client.createClientCipher(server.getPublicKey()));
+        this.ecbFrame = this.ecbCodec.encode(this.packet);
+        this.gcmFrame = new PacketCodec(server.createServerCipher(client.getPublicKey())).encode(this.packet);
+    }
+
+    @Benchmark
+    public byte[] encryptCipherPerPacket() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, KEY);
+        return cipher.doFinal(this.packet.getBody());
+    }
+
+    @Benchmark
+    public ByteBuffer encodeEcb() {
+        return this.ecbCodec.encode(this.packet);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeGcm() {
+        return this.gcmCodec.encode(this.packet);
+    }
+
+    @Benchmark
+    public Packet decodeEcb() throws Exception {
+        return this.ecbCodec.decode(this.ecbFrame.duplicate());
+    }
+
+    @Benchmark
+    public Packet decodeGcm() throws Exception {
+        return this.gcmCodec.decode(this.gcmFrame.duplicate());
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schemas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    @Param({"json", "binary"})
+    private String format;
+
+    @Param({"10", "1000"})
+    private int products;
+
+    private PayloadFormat payloadFormat;
+    private List<Product> productList;
+    private byte[] body;
+
+    @Setup
+    public void prepare() throws Exception {
+        this.payloadFormat = PayloadFormat.forName(this.format);
+        this.productList = new ArrayList<>(this.products);
+        for(int i = 1; i <= this.products; i++) {
+            this.productList.add(new Product(i, i % 10, "Product" + i, "Description" + i, "Producer" + i % 7, i * 1.25, i % 100));
+        }
+        this.body = this.payloadFormat.write(Schemas.PRODUCTS, this.productList);
+    }
+
+    @Benchmark
+    public byte[] write(BodySize size) throws Exception {
+        byte[] body = this.payloadFormat.write(Schemas.PRODUCTS, this.productList);
+        size.bodyBytes = body.length;
+        return body;
+    }
+
+    @Benchmark
+    public List<Product> read() throws Exception {
+        return this.payloadFormat.read(Schemas.PRODUCTS, this.body);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BodySize {
+
+        public long bodyBytes;
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.client.StockAsyncClient;
+import com.mshevchenko.client.StockClient;
+import com.mshevchenko.server.StockSelectorServer;
+import com.mshevchenko.server.StockServer;
+import com.mshevchenko.server_interfaces.Server;
+import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Time to complete a batch of GET_PRODUCT_BY_ID requests over one connection,
+ * either one round trip at a time or all sent before waiting for responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final int PORT = 4601;
+
+    @Param({"pool", "nio"})
+    private String mode;
+
+    @Param({"32"})
+    private int batch;
+
+    private File file;
+    private Stock stock;
+    private Server server;
+    private StockClient client;
+    private StockAsyncClient asyncClient;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        this.file = File.createTempFile("pipelineBenchmark", ".db");
+        this.stock = new Stock(this.file.getPath());
+        this.stock.insertGroup(new Group(1, "Group1", "Group1"));
+        for(int i = 1; i <= this.batch; i++) {
+            this.stock.insertProduct(new Product(i, 1, "Product" + i, "Product" + i, "Producer", i, i));
+        }
+        if(this.mode.equals("nio")) {
+            this.server = new StockSelectorServer(PORT, this.stock);
+        }
+        else {
+            this.server = new StockServer(PORT, this.stock);
+        }
+        new Thread(this.server).start();
+        this.client = new StockClient(InetAddress.getLocalHost(), PORT);
+        this.asyncClient = new StockAsyncClient(InetAddress.getLocalHost(), PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        this.client.closeSocket();
+        this.asyncClient.close();
+        this.server.close();
+        this.stock.close();
+        this.file.delete();
+    }
+
+    @Benchmark
+    public int sequential() throws Exception {
+        int quantity = 0;
+        for(int i = 1; i <= this.batch; i++) {
+            quantity += this.client.getProductById(i).getQuantity();
+        }
+        return quantity;
+    }
+
+    @Benchmark
+    public int pipelined() {
+        CompletableFuture<Product>[] futures = new CompletableFuture[this.batch];
+        for(int i = 1; i <= this.batch; i++) {
+            futures[i - 1] = this.asyncClient.getProductById(i);
+        }
+        int quantity = 0;
+        for(CompletableFuture<Product> future : futures) {
+            quantity += future.join().getQuantity();
+        }
+        return quantity;
+    }
+
+}
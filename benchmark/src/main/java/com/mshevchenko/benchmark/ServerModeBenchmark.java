@@ -0,0 +1,100 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.client.StockClient;
+import com.mshevchenko.server.StockSelectorServer;
+import com.mshevchenko.server.StockServer;
+import com.mshevchenko.server_interfaces.Server;
+import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Group;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Latency of GET_GROUP_BY_ID for a few active clients while idleConnections
+ * other clients stay connected. In "pool" mode every idle connection holds a
+ * pool thread, so once idleConnections reaches the core count the active
+ * clients time out and the trial fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ServerModeBenchmark {
+
+    private static final int PORT = 4600;
+
+    @Param({"pool", "virtual", "nio"})
+    private String mode;
+
+    @Param({"0", "64", "1024"})
+    private int idleConnections;
+
+    private File file;
+    private Stock stock;
+    private Server server;
+    private List<Socket> idle;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        this.file = File.createTempFile("serverModeBenchmark", ".db");
+        this.stock = new Stock(this.file.getPath());
+        this.stock.insertGroup(new Group(1, "Group1", "Group1"));
+        if(this.mode.equals("nio")) {
+            this.server = new StockSelectorServer(PORT, this.stock);
+        }
+        else if(this.mode.equals("virtual")) {
+            this.server = new StockServer(PORT, this.stock, StockServer.ExecutionMode.THREAD_PER_CONNECTION);
+        }
+        else {
+            this.server = new StockServer(PORT, this.stock);
+        }
+        new Thread(this.server).start();
+        this.idle = new LinkedList<>();
+        for(int i = 0; i < this.idleConnections; i++) {
+            this.idle.add(new Socket(InetAddress.getLocalHost(), PORT));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        for(Socket socket : this.idle) {
+            socket.close();
+        }
+        this.server.close();
+        this.stock.close();
+        this.file.delete();
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        private StockClient client;
+
+        @Setup(Level.Trial)
+        public void connect() throws IOException {
+            this.client = new StockClient(InetAddress.getLocalHost(), PORT);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() {
+            this.client.closeSocket();
+        }
+
+    }
+
+    @Benchmark
+    public Group getGroupById(ClientState state) throws Exception {
+        return state.client.getGroupById(1);
+    }
+
+}
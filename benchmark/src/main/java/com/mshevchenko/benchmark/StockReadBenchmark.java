@@ -0,0 +1,59 @@
+package com.mshevchenko.benchmark;
+
+import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Read throughput of Stock with a given number of reader connections.
+ * Run with -t 1,2,4,... to see how reads scale with threads, e.g.
+ * java -jar benchmarks.jar StockReadBenchmark -t 4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockReadBenchmark {
+
+    private static final int PRODUCTS = 10000;
+
+    @Param({"1", "4", "8"})
+    private int readers;
+
+    private File file;
+    private Stock stock;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        this.file = File.createTempFile("stockReadBenchmark", ".db");
+        this.stock = new Stock(this.file.getPath(), this.readers);
+        this.stock.insertGroup(new Group(1, "Group1", "Group1"));
+        for(int i = 1; i <= PRODUCTS; i++) {
+            this.stock.insertProduct(new Product(i, 1, "Product" + i, "Description" + i, "Producer" + i % 10, i, i % 100));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        this.stock.close();
+        this.file.delete();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return this.stock.getProductById(ThreadLocalRandom.current().nextInt(1, PRODUCTS + 1));
+    }
+
+    @Benchmark
+    public int getProductsByFilter() {
+        return this.stock.getProductsByFilter(new Product(-1, -1, null, null, "Producer" + ThreadLocalRandom.current().nextInt(10), -1, -1)).size();
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.mshevchenko.client;
+
+import com.mshevchenko.client.exceptions.ServerErrorException;
+import com.mshevchenko.client.exceptions.StreamException;
+import com.mshevchenko.client.exceptions.UnavailableServerException;
+import com.mshevchenko.packet.Flags;
+import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.Status;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schema;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+class PacketStreamIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private StockClient client;
+    private PayloadFormat payloadFormat;
+    private Schema<List<T>> schema;
+    private Iterator<T> batch;
+    private boolean finished;
+
+    PacketStreamIterator(StockClient client, PayloadFormat payloadFormat, Schema<List<T>> schema) {
+        this.client = client;
+        this.payloadFormat = payloadFormat;
+        this.schema = schema;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while((this.batch == null || !this.batch.hasNext()) && !this.finished) {
+            readBatch();
+        }
+        return this.batch != null && this.batch.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.batch.next();
+    }
+
+    private void readBatch() {
+        try {
+            Packet packet = this.client.receivePacket();
+            int flags = packet.getFlags();
+            this.finished = (flags & Flags.STREAM) == 0 || (flags & Flags.END_OF_STREAM) != 0;
+            if(packet.getStatus() != Status.SUCCESS) {
+                close();
+                throw new StreamException(new ServerErrorException());
+            }
+            this.batch = this.payloadFormat.read(this.schema, packet.getBody()).iterator();
+        } catch (UnavailableServerException | ServerErrorException e) {
+            this.finished = true;
+            throw new StreamException(e);
+        } catch (IOException e) {
+            close();
+            throw new StreamException(new ServerErrorException());
+        }
+    }
+
+    @Override
+    public void close() {
+        if(!this.finished) {
+            this.finished = true;
+            this.client.closeSocket();
+        }
+    }
+
+}
@@ -0,0 +1,403 @@
+package com.mshevchenko.client;
+
+import com.mshevchenko.client.exceptions.InvalidQueryException;
+import com.mshevchenko.client.exceptions.ServerErrorException;
+import com.mshevchenko.client.exceptions.UnavailableServerException;
+import com.mshevchenko.client.exceptions.VersionConflictException;
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Flags;
+import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.PacketFrameDecoder;
+import com.mshevchenko.packet.Status;
+import com.mshevchenko.packet.exceptions.LostDataException;
+import com.mshevchenko.packet.exceptions.NotPacketException;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.ChangeSet;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
+import com.mshevchenko.stock_objects.Pair;
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.SortSpec;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schema;
+import com.mshevchenko.stock_objects.payload.Schemas;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class StockAsyncClient implements AutoCloseable {
+
+    private InetAddress serverAddress;
+    private int serverPort;
+    private int timeout = 1000;
+    private Socket socket;
+    private OutputStream out;
+    private long packetNumber = 0;
+    private PacketCodec codec;
+    private PayloadFormat payloadFormat = PayloadFormat.JSON;
+    private Map<Long, CompletableFuture<Packet>> pending;
+    private volatile Consumer<ChangeSet> changeListener;
+
+    public StockAsyncClient(InetAddress serverAddress, int serverPort) {
+        this.serverAddress = serverAddress;
+        this.serverPort = serverPort;
+        this.codec = new PacketCodec();
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    public CompletableFuture<Boolean> insertGroup(Group group) {
+        return update(Commands.INSERT_GROUP, Schemas.GROUP, group);
+    }
+
+    public CompletableFuture<Boolean> insertProduct(Product product) {
+        return update(Commands.INSERT_PRODUCT, Schemas.PRODUCT, product);
+    }
+
+    public CompletableFuture<int[]> insertGroups(List<Group> groups) {
+        return query(Commands.INSERT_GROUPS, Schemas.GROUPS, groups, Schemas.INT_ARRAY);
+    }
+
+    public CompletableFuture<int[]> insertProducts(List<Product> products) {
+        return query(Commands.INSERT_PRODUCTS, Schemas.PRODUCTS, products, Schemas.INT_ARRAY);
+    }
+
+    public CompletableFuture<Boolean> updateGroup(Group group) {
+        return update(Commands.UPDATE_GROUP, Schemas.GROUP, group);
+    }
+
+    public CompletableFuture<Boolean> updateProduct(Product product) {
+        return update(Commands.UPDATE_PRODUCT, Schemas.PRODUCT, product);
+    }
+
+    public CompletableFuture<Boolean> deleteGroup(Group group) {
+        return update(Commands.DELETE_GROUP, Schemas.GROUP, group);
+    }
+
+    public CompletableFuture<Boolean> deleteProduct(Product product) {
+        return update(Commands.DELETE_PRODUCT, Schemas.PRODUCT, product);
+    }
+
+    public CompletableFuture<Boolean> deleteGroupById(int id) {
+        return update(Commands.DELETE_GROUP_BY_ID, Schemas.INT, id);
+    }
+
+    public CompletableFuture<Boolean> deleteProductById(int id) {
+        return update(Commands.DELETE_PRODUCT_BY_ID, Schemas.INT, id);
+    }
+
+    public CompletableFuture<Boolean> deleteGroupsByIds(int[] ids) {
+        return update(Commands.DELETE_GROUPS_BY_IDS, Schemas.INT_ARRAY, ids);
+    }
+
+    public CompletableFuture<Boolean> deleteProductsByIds(int[] ids) {
+        return update(Commands.DELETE_PRODUCTS_BY_IDS, Schemas.INT_ARRAY, ids);
+    }
+
+    public CompletableFuture<Boolean> increaseProductQuantity(int id, int value) {
+        return update(Commands.INCREASE_PRODUCT_QUANTITY, Schemas.ID_VALUE, new Pair<>(id, value));
+    }
+
+    public CompletableFuture<Boolean> increaseProductsQuantity(int[] ids, int value) {
+        return update(Commands.INCREASE_PRODUCTS_QUANTITY, Schemas.IDS_VALUE, new Pair<>(ids, value));
+    }
+
+    public CompletableFuture<Boolean> decreaseProductQuantity(int id, int value) {
+        return update(Commands.DECREASE_PRODUCT_QUANTITY, Schemas.ID_VALUE, new Pair<>(id, value));
+    }
+
+    public CompletableFuture<Map<Integer, Integer>> adjustProductsQuantity(Map<Integer, Integer> deltas) {
+        return query(Commands.ADJUST_PRODUCTS_QUANTITY, Schemas.ID_VALUES, deltas, Schemas.ID_VALUES);
+    }
+
+    public CompletableFuture<Map<Integer, Integer>> pickOrder(Map<Integer, Integer> lines) {
+        return request(Commands.ORDER_PICK, Schemas.ID_VALUES, lines, (format, packet) -> {
+            if(packet.getStatus() != Status.SUCCESS && packet.getStatus() != Status.FAILURE) {
+                throw new ServerErrorException();
+            }
+            try {
+                return format.read(Schemas.ID_VALUES, packet.getBody());
+            } catch (IOException e) {
+                throw new ServerErrorException();
+            }
+        });
+    }
+
+    public CompletableFuture<List<Group>> getGroups() {
+        return query(Commands.GET_GROUPS, null, null, Schemas.GROUPS);
+    }
+
+    public CompletableFuture<List<Product>> getProducts() {
+        return query(Commands.GET_PRODUCTS, null, null, Schemas.PRODUCTS);
+    }
+
+    public CompletableFuture<List<Group>> getGroupsByFilter(Group group) {
+        return query(Commands.GET_GROUPS_BY_FILTER, Schemas.GROUP, group, Schemas.GROUPS);
+    }
+
+    public CompletableFuture<List<Product>> getProductsByFilter(Product product) {
+        return query(Commands.GET_PRODUCTS_BY_FILTER, Schemas.PRODUCT, product, Schemas.PRODUCTS);
+    }
+
+    public CompletableFuture<List<String[]>> getProductsInnerJoinGroups() {
+        return query(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS, null, null, Schemas.ROWS);
+    }
+
+    public CompletableFuture<List<String[]>> getProductsInnerJoinGroupsByFilter(Product product) {
+        return query(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER, Schemas.PRODUCT, product, Schemas.ROWS);
+    }
+
+    public CompletableFuture<Page<Group>> getGroupsPage(PageRequest<Group> request) {
+        return query(Commands.GET_GROUPS_PAGE, Schemas.GROUPS_PAGE_REQUEST, request, Schemas.GROUPS_PAGE);
+    }
+
+    public CompletableFuture<Page<Product>> getProductsPage(PageRequest<Product> request) {
+        return query(Commands.GET_PRODUCTS_PAGE, Schemas.PRODUCTS_PAGE_REQUEST, request, Schemas.PRODUCTS_PAGE);
+    }
+
+    public CompletableFuture<Page<String[]>> getProductsInnerJoinGroupsPage(PageRequest<Product> request) {
+        return query(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_PAGE, Schemas.PRODUCTS_PAGE_REQUEST, request, Schemas.ROWS_PAGE);
+    }
+
+    public CompletableFuture<List<Product>> getProductsSorted(Product product, SortSpec sort) {
+        return query(Commands.GET_PRODUCTS_SORTED, Schemas.SORTED_PRODUCTS_REQUEST, new Pair<>(product, sort), Schemas.PRODUCTS);
+    }
+
+    public CompletableFuture<List<String[]>> getProductsInnerJoinGroupsSorted(Product product, SortSpec sort) {
+        return query(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_SORTED, Schemas.SORTED_PRODUCTS_REQUEST, new Pair<>(product, sort), Schemas.ROWS);
+    }
+
+    public CompletableFuture<InventoryTotals> getInventoryTotals() {
+        return query(Commands.GET_INVENTORY_TOTALS, null, null, Schemas.INVENTORY_TOTALS);
+    }
+
+    public CompletableFuture<ChangeSet> getChangesSince(long revision) {
+        return query(Commands.GET_CHANGES_SINCE, Schemas.LONG, revision, Schemas.CHANGE_SET);
+    }
+
+    public CompletableFuture<Long> subscribe(Consumer<ChangeSet> listener) {
+        this.changeListener = listener;
+        return query(Commands.SUBSCRIBE, null, null, Schemas.LONG);
+    }
+
+    public CompletableFuture<Boolean> unsubscribe() {
+        this.changeListener = null;
+        return update(Commands.UNSUBSCRIBE, format -> new byte[0]);
+    }
+
+    public CompletableFuture<Group> getGroupById(int id) {
+        return request(Commands.GET_GROUP_BY_ID, Schemas.INT, id,
+                (format, packet) -> packet.getStatus() == Status.FAILURE ? null : read(format, packet, Schemas.GROUP));
+    }
+
+    public CompletableFuture<Product> getProductById(int id) {
+        return request(Commands.GET_PRODUCT_BY_ID, Schemas.INT, id,
+                (format, packet) -> packet.getStatus() == Status.FAILURE ? null : read(format, packet, Schemas.PRODUCT));
+    }
+
+    public synchronized CompletableFuture<Boolean> setPayloadFormat(PayloadFormat payloadFormat) {
+        PayloadFormat previous = this.payloadFormat;
+        this.payloadFormat = payloadFormat;
+        CompletableFuture<Boolean> result = update(Commands.SET_PAYLOAD_FORMAT, format -> payloadFormat.getName().getBytes(StandardCharsets.UTF_8));
+        if(result.isCompletedExceptionally()) {
+            this.payloadFormat = previous;
+        }
+        return result;
+    }
+
+    public synchronized CompletableFuture<Boolean> setCompressor(PacketCompressor compressor) {
+        this.codec.setCompressor(compressor);
+        String message = compressor != null ? PacketCompressor.NAME : "";
+        return update(Commands.SET_COMPRESSION, format -> message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> CompletableFuture<Boolean> update(int command, Schema<T> schema, T value) {
+        return update(command, format -> format.write(schema, value));
+    }
+
+    private CompletableFuture<Boolean> update(int command, RequestWriter writer) {
+        return request(command, writer, (format, packet) -> {
+            if(packet.getStatus() == Status.SUCCESS) {
+                return true;
+            }
+            else if(packet.getStatus() == Status.FAILURE) {
+                return false;
+            }
+            else if(packet.getStatus() == Status.CONFLICT) {
+                throw new VersionConflictException();
+            }
+            throw new ServerErrorException();
+        });
+    }
+
+    private <T, R> CompletableFuture<R> query(int command, Schema<T> schema, T value, Schema<R> responseSchema) {
+        return request(command, schema, value, (format, packet) -> read(format, packet, responseSchema));
+    }
+
+    private <T, R> CompletableFuture<R> request(int command, Schema<T> schema, T value, ResponseReader<R> reader) {
+        return request(command, format -> schema == null ? new byte[0] : format.write(schema, value), reader);
+    }
+
+    private <R> R read(PayloadFormat format, Packet packet, Schema<R> schema) throws ServerErrorException {
+        if(packet.getStatus() != Status.SUCCESS) {
+            throw new ServerErrorException();
+        }
+        try {
+            return format.read(schema, packet.getBody());
+        } catch (IOException e) {
+            throw new ServerErrorException();
+        }
+    }
+
+    private synchronized <R> CompletableFuture<R> request(int command, RequestWriter writer, ResponseReader<R> reader) {
+        PayloadFormat format = this.payloadFormat;
+        byte[] body;
+        try {
+            body = writer.write(format);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new InvalidQueryException());
+        }
+        CompletableFuture<Packet> response;
+        try {
+            if(this.socket == null || this.socket.isClosed()) {
+                connect();
+            }
+            response = send(command, body);
+        } catch (UnavailableServerException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return response.thenApply(packet -> {
+            try {
+                return reader.read(format, packet);
+            } catch (ServerErrorException | VersionConflictException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private CompletableFuture<Packet> send(int command, byte[] body) throws UnavailableServerException {
+        long number = this.packetNumber++;
+        CompletableFuture<Packet> future = new CompletableFuture<>();
+        this.pending.put(number, future);
+        try {
+            ByteBuffer buffer = this.codec.encode(new Packet(number, Status.CLIENT, command, body));
+            this.out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } catch (IOException e) {
+            closeSocket(this.socket);
+            throw new UnavailableServerException();
+        }
+        return future;
+    }
+
+    private void connect() throws UnavailableServerException {
+        Socket socket = new Socket();
+        InputStream in;
+        try {
+            socket.connect(new InetSocketAddress(this.serverAddress, this.serverPort), this.timeout);
+            socket.setTcpNoDelay(true);
+            in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            throw new UnavailableServerException();
+        }
+        this.socket = socket;
+        Thread reader = new Thread(() -> receive(socket, in), "stock-async-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+        if(this.payloadFormat != PayloadFormat.JSON) {
+            send(Commands.SET_PAYLOAD_FORMAT, this.payloadFormat.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        if(this.codec.getCompressor() != null) {
+            send(Commands.SET_COMPRESSION, PacketCompressor.NAME.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void receive(Socket socket, InputStream in) {
+        PacketFrameDecoder frameDecoder = new PacketFrameDecoder();
+        try {
+            while(frameDecoder.read(in)) {
+                Packet packet = this.codec.decode(ByteBuffer.wrap(frameDecoder.getFrame(), 0, frameDecoder.getFrameLength()));
+                if((packet.getFlags() & Flags.PUSH) != 0) {
+                    push(packet);
+                    continue;
+                }
+                CompletableFuture<Packet> future = this.pending.remove(packet.getPacketNumber());
+                if(future != null) {
+                    future.complete(packet);
+                }
+            }
+        } catch (IOException | NotPacketException | LostDataException ignored) {
+        }
+        closeSocket(socket);
+    }
+
+    private void push(Packet packet) {
+        Consumer<ChangeSet> listener = this.changeListener;
+        if(listener == null) {
+            return;
+        }
+        try {
+            listener.accept(this.payloadFormat.read(Schemas.CHANGE_SET, packet.getBody()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized void closeSocket(Socket socket) {
+        if(socket == null || this.socket != socket) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        this.socket = null;
+        this.out = null;
+        for(Long number : new ArrayList<>(this.pending.keySet())) {
+            CompletableFuture<Packet> future = this.pending.remove(number);
+            if(future != null) {
+                future.completeExceptionally(new UnavailableServerException());
+            }
+        }
+    }
+
+    public int getPendingRequests() {
+        return this.pending.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSocket(this.socket);
+    }
+
+    private interface RequestWriter {
+
+        byte[] write(PayloadFormat format) throws IOException;
+
+    }
+
+    private interface ResponseReader<R> {
+
+        R read(PayloadFormat format, Packet packet) throws ServerErrorException, VersionConflictException;
+
+    }
+
+}
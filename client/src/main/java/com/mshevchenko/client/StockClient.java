@@ -1,20 +1,34 @@
 package com.mshevchenko.client;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mshevchenko.client.exceptions.InvalidQueryException;
 import com.mshevchenko.client.exceptions.ServerErrorException;
 import com.mshevchenko.client.exceptions.UnavailableServerException;
+import com.mshevchenko.client.exceptions.VersionConflictException;
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.crypto.AesEcbCipher;
+import com.mshevchenko.crypto.SessionHandshake;
 import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Flags;
 import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.PacketFrameDecoder;
 import com.mshevchenko.packet.Status;
 import com.mshevchenko.packet.exceptions.LostDataException;
 import com.mshevchenko.packet.exceptions.NotPacketException;
+import com.mshevchenko.stock_objects.Change;
+import com.mshevchenko.stock_objects.ChangeSet;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
 import com.mshevchenko.stock_objects.Pair;
 import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.SortSpec;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schema;
+import com.mshevchenko.stock_objects.payload.Schemas;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -22,10 +36,21 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StockClient {
 
+    public static int INSERT_REQUEST_SIZE = 10000;
+    public static int CONDITIONAL_READ_CACHE_SIZE = 64;
+
     private InetAddress serverAddress;
     private int serverPort;
     private Socket socket;
@@ -33,14 +58,27 @@ public class StockClient {
     private InputStream in;
     private OutputStream out;
     private long packetNumber = 0;
-    private ObjectMapper objectMapper;
+    private PayloadFormat payloadFormat = PayloadFormat.JSON;
     private int timeout = 1000;
+    private PacketFrameDecoder frameDecoder;
+    private PacketCodec codec;
+    private boolean secureSession;
+    private boolean conditionalReads = true;
+    private Map<ByteBuffer, VersionedPayload> lastPayloads = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VersionedPayload> eldest) {
+            return size() > CONDITIONAL_READ_CACHE_SIZE;
+        }
+    };
+    private long lastDataVersion;
+    private long notModifiedResponses;
 
     public StockClient(InetAddress serverAddress, int serverPort) {
         this.serverAddress = serverAddress;
         this.serverPort = serverPort;
         this.closed = false;
-        this.objectMapper = new ObjectMapper();
+        this.frameDecoder = new PacketFrameDecoder();
+        this.codec = new PacketCodec();
     }
 
     public void sendMessage(int command, String message) throws UnavailableServerException {
@@ -48,49 +86,40 @@ public class StockClient {
         sendPacket(packet);
     }
 
+    public void sendMessage(int command, byte[] body) throws UnavailableServerException {
+        Packet packet = new Packet(this.packetNumber, Status.CLIENT, command, body);
+        sendPacket(packet);
+    }
+
     public void sendPacket(Packet packet) throws UnavailableServerException {
         if(this.socket == null || this.socket.isClosed()) {
             connectToServer();
         }
-        byte[] bytes = Packet.encryptPacket(packet);
-        /*for(byte b : bytes) {
-            System.out.print((int)b + " ");
-        }
-        System.out.println();*/
         try {
-            this.out.write(bytes);
+            writePacket(packet);
             this.packetNumber++;
         } catch (IOException e) {
             closeSocket();
-            resend(bytes);
+            resend(packet);
         }
     }
 
+    private void writePacket(Packet packet) throws IOException {
+        ByteBuffer buffer = this.codec.encode(packet);
+        this.out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+    }
+
     public Packet receivePacket() throws UnavailableServerException, ServerErrorException {
         if(this.socket == null || this.socket.isClosed()) {
             connectToServer();
         }
         try {
-            int magic = this.in.read();
-            if(magic != Packet.MAGIC) {
-                closeSocket();
-            }
-            else {
-                byte[] packetStart = new byte[16];
-                this.in.read(packetStart, 0, packetStart.length);
-                byte[] messageLength = new byte[4];
-                this.in.read(messageLength, 0, messageLength.length);
-                int mesLength = ByteBuffer.wrap(messageLength).getInt();
-                byte[] packet = new byte[mesLength + 23];
-                packet[0] = Packet.MAGIC;
-                System.arraycopy(packetStart, 0, packet, 1, packetStart.length);
-                System.arraycopy(messageLength, 0, packet, 1 + packetStart.length, messageLength.length);
-                this.in.read(packet, 21, mesLength + 2);
-                return Packet.decryptPacket(packet);
-            }
+            return readPacket();
         } catch (IOException e) {
             closeSocket();
             return rereceivePacket();
+        } catch (NotPacketException e) {
+            closeSocket();
         } catch (Exception ignored) {
         }
         throw new ServerErrorException();
@@ -101,37 +130,30 @@ public class StockClient {
             connectToServer();
         }
         try {
-            int magic = this.in.read();
-            if(magic != Packet.MAGIC) {
-                closeSocket();
-            }
-            else {
-                byte[] packetStart = new byte[16];
-                this.in.read(packetStart, 0, packetStart.length);
-                byte[] messageLength = new byte[4];
-                this.in.read(messageLength, 0, messageLength.length);
-                int mesLength = ByteBuffer.wrap(messageLength).getInt();
-                byte[] packet = new byte[mesLength + 23];
-                packet[0] = Packet.MAGIC;
-                System.arraycopy(packetStart, 0, packet, 1, packetStart.length);
-                System.arraycopy(messageLength, 0, packet, 1 + packetStart.length, messageLength.length);
-                this.in.read(packet, 21, mesLength + 2);
-                return Packet.decryptPacket(packet);
-            }
+            return readPacket();
         } catch (IOException e) {
             closeSocket();
             throw new UnavailableServerException();
+        } catch (NotPacketException e) {
+            closeSocket();
         } catch (Exception ignored) {
         }
         throw new ServerErrorException();
     }
 
-    private void resend(byte[] bytes) throws UnavailableServerException {
+    private Packet readPacket() throws IOException, NotPacketException, LostDataException {
+        if(!this.frameDecoder.read(this.in)) {
+            throw new EOFException();
+        }
+        return this.codec.decode(ByteBuffer.wrap(this.frameDecoder.getFrame(), 0, this.frameDecoder.getFrameLength()));
+    }
+
+    private void resend(Packet packet) throws UnavailableServerException {
         if(this.socket == null || this.socket.isClosed()) {
             connectToServer();
         }
         try {
-            this.out.write(bytes);
+            writePacket(packet);
             this.packetNumber++;
         } catch (IOException e) {
             closeSocket();
@@ -144,12 +166,94 @@ public class StockClient {
             this.socket = new Socket();
             this.socket.connect(new InetSocketAddress(this.serverAddress, this.serverPort), this.timeout);
             this.socket.setSoTimeout(this.timeout);
+            this.socket.setTcpNoDelay(true);
             this.in = this.socket.getInputStream();
             this.out = this.socket.getOutputStream();
+            this.frameDecoder.reset();
+            this.codec.setCipher(AesEcbCipher.DEFAULT);
         } catch (IOException e) {
             closeSocket();
             throw new UnavailableServerException();
         }
+        if(this.secureSession) {
+            handshake();
+        }
+        if(this.payloadFormat != PayloadFormat.JSON) {
+            negotiate(Commands.SET_PAYLOAD_FORMAT, this.payloadFormat.getName());
+        }
+        if(this.codec.getCompressor() != null) {
+            negotiate(Commands.SET_COMPRESSION, PacketCompressor.NAME);
+        }
+    }
+
+    public void startSecureSession() throws UnavailableServerException {
+        this.secureSession = true;
+        if(this.socket == null || this.socket.isClosed()) {
+            connectToServer();
+        }
+        else {
+            handshake();
+        }
+    }
+
+    private void handshake() throws UnavailableServerException {
+        try {
+            SessionHandshake handshake = new SessionHandshake();
+            writePacket(new Packet(this.packetNumber++, Status.CLIENT, Commands.HANDSHAKE, handshake.getPublicKey()));
+            Packet packet = readPacket();
+            if(packet.getStatus() != Status.SUCCESS) {
+                throw new GeneralSecurityException();
+            }
+            this.codec.setCipher(handshake.createClientCipher(packet.getMessage()));
+        } catch (IOException | GeneralSecurityException | NotPacketException | LostDataException e) {
+            closeSocket();
+            throw new UnavailableServerException();
+        }
+    }
+
+    public PayloadFormat getPayloadFormat() {
+        return this.payloadFormat;
+    }
+
+    public void setPayloadFormat(PayloadFormat payloadFormat) throws UnavailableServerException {
+        if(this.payloadFormat == payloadFormat) {
+            return;
+        }
+        this.payloadFormat = payloadFormat;
+        this.lastPayloads.clear();
+        if(this.socket == null || this.socket.isClosed()) {
+            connectToServer();
+        }
+        else {
+            negotiate(Commands.SET_PAYLOAD_FORMAT, this.payloadFormat.getName());
+        }
+    }
+
+    public PacketCompressor getCompressor() {
+        return this.codec.getCompressor();
+    }
+
+    public void setCompressor(PacketCompressor compressor) throws UnavailableServerException {
+        this.codec.setCompressor(compressor);
+        if(this.socket == null || this.socket.isClosed()) {
+            connectToServer();
+        }
+        else {
+            negotiate(Commands.SET_COMPRESSION, compressor != null ? PacketCompressor.NAME : "");
+        }
+    }
+
+    private void negotiate(int command, String message) throws UnavailableServerException {
+        try {
+            writePacket(new Packet(this.packetNumber++, Status.CLIENT, command, message));
+            Packet packet = readPacket();
+            if(packet.getStatus() != Status.SUCCESS) {
+                throw new IOException();
+            }
+        } catch (IOException | NotPacketException | LostDataException e) {
+            closeSocket();
+            throw new UnavailableServerException();
+        }
     }
 
     public void closeSocket() {
@@ -172,8 +276,8 @@ public class StockClient {
 
     public boolean insertGroup(Group group) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(group);
-            sendMessage(Commands.INSERT_GROUP, json);
+            byte[] body = this.payloadFormat.write(Schemas.GROUP, group);
+            sendMessage(Commands.INSERT_GROUP, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -184,15 +288,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean insertProduct(Product product) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(product);
-            sendMessage(Commands.INSERT_PRODUCT, json);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCT, product);
+            sendMessage(Commands.INSERT_PRODUCT, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -203,15 +307,48 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
-    public boolean updateGroup(Group group) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+    public int[] insertGroups(List<Group> groups) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+        return insertAll(Commands.INSERT_GROUPS, Schemas.GROUPS, groups);
+    }
+
+    public int[] insertProducts(List<Product> products) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+        return insertAll(Commands.INSERT_PRODUCTS, Schemas.PRODUCTS, products);
+    }
+
+    private <T> int[] insertAll(int command, Schema<List<T>> schema, List<T> values) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+        int[] results = new int[values.size()];
+        for(int start = 0; start < values.size(); start += INSERT_REQUEST_SIZE) {
+            List<T> chunk = values.subList(start, Math.min(start + INSERT_REQUEST_SIZE, values.size()));
+            byte[] body;
+            try {
+                body = this.payloadFormat.write(schema, chunk);
+            } catch (IOException e) {
+                throw new InvalidQueryException();
+            }
+            sendMessage(command, body);
+            Packet packet = receivePacket();
+            if(packet.getStatus() != Status.SUCCESS) {
+                throw new ServerErrorException();
+            }
+            try {
+                int[] chunkResults = this.payloadFormat.read(Schemas.INT_ARRAY, packet.getBody());
+                System.arraycopy(chunkResults, 0, results, start, Math.min(chunkResults.length, chunk.size()));
+            } catch (IOException e) {
+                throw new ServerErrorException();
+            }
+        }
+        return results;
+    }
+
+    public boolean updateGroup(Group group) throws UnavailableServerException, InvalidQueryException, ServerErrorException, VersionConflictException {
         try {
-            String json = this.objectMapper.writeValueAsString(group);
-            sendMessage(Commands.UPDATE_GROUP, json);
+            byte[] body = this.payloadFormat.write(Schemas.GROUP, group);
+            sendMessage(Commands.UPDATE_GROUP, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -219,18 +356,21 @@ public class StockClient {
             else if(packet.getStatus() == Status.FAILURE) {
                 return false;
             }
+            else if(packet.getStatus() == Status.CONFLICT) {
+                throw new VersionConflictException();
+            }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
-    public boolean updateProduct(Product product) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+    public boolean updateProduct(Product product) throws UnavailableServerException, InvalidQueryException, ServerErrorException, VersionConflictException {
         try {
-            String json = this.objectMapper.writeValueAsString(product);
-            sendMessage(Commands.UPDATE_PRODUCT, json);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCT, product);
+            sendMessage(Commands.UPDATE_PRODUCT, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -238,18 +378,21 @@ public class StockClient {
             else if(packet.getStatus() == Status.FAILURE) {
                 return false;
             }
+            else if(packet.getStatus() == Status.CONFLICT) {
+                throw new VersionConflictException();
+            }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteGroup(Group group) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(group);
-            sendMessage(Commands.DELETE_GROUP, json);
+            byte[] body = this.payloadFormat.write(Schemas.GROUP, group);
+            sendMessage(Commands.DELETE_GROUP, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -260,15 +403,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteProduct(Product product) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(product);
-            sendMessage(Commands.DELETE_PRODUCT, json);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCT, product);
+            sendMessage(Commands.DELETE_PRODUCT, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -279,15 +422,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteGroupById(int id) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(id);
-            sendMessage(Commands.DELETE_GROUP_BY_ID, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT, id);
+            sendMessage(Commands.DELETE_GROUP_BY_ID, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -298,15 +441,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteProductById(int id) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(id);
-            sendMessage(Commands.DELETE_PRODUCT_BY_ID, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT, id);
+            sendMessage(Commands.DELETE_PRODUCT_BY_ID, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -317,15 +460,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteGroupsByIds(int[] ids) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(ids);
-            sendMessage(Commands.DELETE_GROUPS_BY_IDS, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT_ARRAY, ids);
+            sendMessage(Commands.DELETE_GROUPS_BY_IDS, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -336,15 +479,15 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public boolean deleteProductsByIds(int[] ids) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
-            String json = this.objectMapper.writeValueAsString(ids);
-            sendMessage(Commands.DELETE_PRODUCTS_BY_IDS, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT_ARRAY, ids);
+            sendMessage(Commands.DELETE_PRODUCTS_BY_IDS, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -356,160 +499,286 @@ public class StockClient {
                 System.out.println(packet.getStatus());
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public List<Group> getGroups() throws UnavailableServerException, ServerErrorException {
-        sendMessage(Commands.GET_GROUPS, "");
-        Packet packet = receivePacket();
-        if(packet.getStatus() == Status.SUCCESS) {
-            try {
-                List<Group> groups = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
-                return groups;
-            } catch (JsonProcessingException e) {
-                throw new ServerErrorException();
-            }
+        return conditionalRead(Commands.GET_GROUPS, new byte[0], Schemas.GROUPS);
+    }
+
+    public List<Product> getProducts() throws UnavailableServerException, ServerErrorException {
+        return conditionalRead(Commands.GET_PRODUCTS, new byte[0], Schemas.PRODUCTS);
+    }
+
+    public List<Group> getGroupsByFilter(Group group) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        try {
+            return conditionalRead(Commands.GET_GROUPS_BY_FILTER, this.payloadFormat.write(Schemas.GROUP, group), Schemas.GROUPS);
+        } catch (IOException e) {
+            throw new InvalidQueryException();
         }
-        else {
-            throw new ServerErrorException();
+    }
+
+    public List<Product> getProductsByFilter(Product product) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        try {
+            return conditionalRead(Commands.GET_PRODUCTS_BY_FILTER, this.payloadFormat.write(Schemas.PRODUCT, product), Schemas.PRODUCTS);
+        } catch (IOException e) {
+            throw new InvalidQueryException();
         }
     }
 
-    public List<Product> getProducts() throws UnavailableServerException, ServerErrorException {
-        sendMessage(Commands.GET_PRODUCTS, "");
-        Packet packet = receivePacket();
-        if(packet.getStatus() == Status.SUCCESS) {
+    public List<String[]> getProductsInnerJoinGroups() throws UnavailableServerException, ServerErrorException {
+        return conditionalRead(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS, new byte[0], Schemas.ROWS);
+    }
+
+    public List<String[]> getProductsInnerJoinGroupsByFilter(Product product) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        try {
+            return conditionalRead(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER, this.payloadFormat.write(Schemas.PRODUCT, product), Schemas.ROWS);
+        } catch (IOException e) {
+            throw new InvalidQueryException();
+        }
+    }
+
+    public InventoryTotals getInventoryTotals() throws UnavailableServerException, ServerErrorException {
+        return conditionalRead(Commands.GET_INVENTORY_TOTALS, new byte[0], Schemas.INVENTORY_TOTALS);
+    }
+
+    private <T> T conditionalRead(int command, byte[] body, Schema<T> schema) throws UnavailableServerException, ServerErrorException {
+        if(!this.conditionalReads) {
+            sendMessage(command, body);
+            Packet packet = receivePacket();
+            if(packet.getStatus() != Status.SUCCESS) {
+                throw new ServerErrorException();
+            }
             try {
-                List<Product> products = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
-                return products;
-            } catch (JsonProcessingException e) {
+                return this.payloadFormat.read(schema, packet.getBody());
+            } catch (IOException e) {
                 throw new ServerErrorException();
             }
         }
+        ByteBuffer key = ByteBuffer.allocate(Integer.BYTES + body.length).putInt(command).put(body).flip();
+        VersionedPayload last = this.lastPayloads.get(key);
+        byte[] request = ByteBuffer.allocate(Long.BYTES + body.length).putLong(last != null ? last.version : 0).put(body).array();
+        Packet packet = new Packet(this.packetNumber, Status.CLIENT, command, request);
+        packet.setFlags(Flags.VERSIONED);
+        sendPacket(packet);
+        Packet response = receivePacket();
+        byte[] payload = response.getBody();
+        if((response.getFlags() & Flags.VERSIONED) == 0 || payload.length < Long.BYTES) {
+            throw new ServerErrorException();
+        }
+        long version = ByteBuffer.wrap(payload).getLong();
+        this.lastDataVersion = version;
+        if(response.getStatus() == Status.NOT_MODIFIED && last != null) {
+            this.notModifiedResponses++;
+            payload = last.payload;
+        }
+        else if(response.getStatus() == Status.SUCCESS) {
+            payload = Arrays.copyOfRange(payload, Long.BYTES, payload.length);
+            if(version != 0) {
+                this.lastPayloads.put(key, new VersionedPayload(version, payload));
+            }
+        }
         else {
             throw new ServerErrorException();
         }
+        try {
+            return this.payloadFormat.read(schema, payload);
+        } catch (IOException e) {
+            throw new ServerErrorException();
+        }
     }
 
-    public List<Group> getGroupsByFilter(Group group) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+    public boolean isConditionalReads() {
+        return this.conditionalReads;
+    }
+
+    public void setConditionalReads(boolean conditionalReads) {
+        this.conditionalReads = conditionalReads;
+        this.lastPayloads.clear();
+    }
+
+    public long getLastDataVersion() {
+        return this.lastDataVersion;
+    }
+
+    public long getNotModifiedResponses() {
+        return this.notModifiedResponses;
+    }
+
+    public ChangeSet getChangesSince(long revision) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
         try {
-            String json = this.objectMapper.writeValueAsString(group);
-            sendMessage(Commands.GET_GROUPS_BY_FILTER, json);
+            byte[] body = this.payloadFormat.write(Schemas.LONG, revision);
+            sendMessage(Commands.GET_CHANGES_SINCE, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 try {
-                    List<Group> groups = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
-                    return groups;
-                } catch (JsonProcessingException e) {
+                    return this.payloadFormat.read(Schemas.CHANGE_SET, packet.getBody());
+                } catch (IOException e) {
                     throw new ServerErrorException();
                 }
             }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
-    public List<Product> getProductsByFilter(Product product) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+    public long syncInventory(Map<Integer, Group> groups, Map<Integer, Product> products, long revision) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        ChangeSet changes = getChangesSince(revision);
+        if(changes.isResyncRequired()) {
+            groups.clear();
+            products.clear();
+            for(Group group : getGroups()) {
+                groups.put(group.getGroupId(), group);
+            }
+            for(Product product : getProducts()) {
+                products.put(product.getProductId(), product);
+            }
+        }
+        else {
+            for(Change change : changes.getChanges()) {
+                applyChange(groups, products, change);
+            }
+        }
+        return changes.getRevision();
+    }
+
+    public static void applyChange(Map<Integer, Group> groups, Map<Integer, Product> products, Change change) {
+        switch (change.getType()) {
+            case Change.GROUP_INSERTED:
+            case Change.GROUP_UPDATED:
+                groups.put(change.getId(), change.getGroup());
+                break;
+            case Change.GROUP_DELETED:
+                groups.remove(change.getId());
+                break;
+            case Change.PRODUCT_INSERTED:
+            case Change.PRODUCT_UPDATED:
+            case Change.QUANTITY_CHANGED:
+                products.put(change.getId(), change.getProduct());
+                break;
+            case Change.PRODUCT_DELETED:
+                products.remove(change.getId());
+                break;
+        }
+    }
+
+    public List<Product> getProductsSorted(Product product, SortSpec sort) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
         try {
-            String json = this.objectMapper.writeValueAsString(product);
-            sendMessage(Commands.GET_PRODUCTS_BY_FILTER, json);
+            byte[] body = this.payloadFormat.write(Schemas.SORTED_PRODUCTS_REQUEST, new Pair<>(product, sort));
+            sendMessage(Commands.GET_PRODUCTS_SORTED, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 try {
-                    List<Product> products = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
+                    List<Product> products = this.payloadFormat.read(Schemas.PRODUCTS, packet.getBody());
                     return products;
-                } catch (JsonProcessingException e) {
+                } catch (IOException e) {
                     throw new ServerErrorException();
                 }
             }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
-    public List<String[]> getProductsInnerJoinGroups() throws UnavailableServerException, ServerErrorException {
-        sendMessage(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS, "");
-        Packet packet = receivePacket();
-        if(packet.getStatus() == Status.SUCCESS) {
-            try {
-                List<String[]> products = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
-                return products;
-            } catch (JsonProcessingException e) {
+    public List<String[]> getProductsInnerJoinGroupsSorted(Product product, SortSpec sort) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        try {
+            byte[] body = this.payloadFormat.write(Schemas.SORTED_PRODUCTS_REQUEST, new Pair<>(product, sort));
+            sendMessage(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_SORTED, body);
+            Packet packet = receivePacket();
+            if(packet.getStatus() == Status.SUCCESS) {
+                try {
+                    List<String[]> products = this.payloadFormat.read(Schemas.ROWS, packet.getBody());
+                    return products;
+                } catch (IOException e) {
+                    throw new ServerErrorException();
+                }
+            }
+            else {
                 throw new ServerErrorException();
             }
-        }
-        else {
-            throw new ServerErrorException();
+        } catch (IOException e) {
+            throw new InvalidQueryException();
         }
     }
 
-    public List<String[]> getProductsInnerJoinGroupsByFilter(Product product) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+    public Page<Group> getGroupsPage(PageRequest<Group> request) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        return page(Commands.GET_GROUPS_PAGE, Schemas.GROUPS_PAGE_REQUEST, request, Schemas.GROUPS_PAGE);
+    }
+
+    public Page<Product> getProductsPage(PageRequest<Product> request) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        return page(Commands.GET_PRODUCTS_PAGE, Schemas.PRODUCTS_PAGE_REQUEST, request, Schemas.PRODUCTS_PAGE);
+    }
+
+    public Page<String[]> getProductsInnerJoinGroupsPage(PageRequest<Product> request) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        return page(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_PAGE, Schemas.PRODUCTS_PAGE_REQUEST, request, Schemas.ROWS_PAGE);
+    }
+
+    private <F, T> Page<T> page(int command, Schema<PageRequest<F>> requestSchema, PageRequest<F> request, Schema<Page<T>> pageSchema) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
         try {
-            String json = this.objectMapper.writeValueAsString(product);
-            sendMessage(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER, json);
+            byte[] body = this.payloadFormat.write(requestSchema, request);
+            sendMessage(command, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 try {
-                    List<String[]> products = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>() {});
-                    return products;
-                } catch (JsonProcessingException e) {
+                    return this.payloadFormat.read(pageSchema, packet.getBody());
+                } catch (IOException e) {
                     throw new ServerErrorException();
                 }
             }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public Group getGroupById(int id) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
         try {
-            String json = this.objectMapper.writeValueAsString(id);
-            sendMessage(Commands.GET_GROUP_BY_ID, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT, id);
+            sendMessage(Commands.GET_GROUP_BY_ID, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 try {
-                    Group group = this.objectMapper.readValue(packet.getMessage(), Group.class);
+                    Group group = this.payloadFormat.read(Schemas.GROUP, packet.getBody());
                     return group;
-                } catch (JsonProcessingException e) {
+                } catch (IOException e) {
                     throw new ServerErrorException();
                 }
             }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
     public Product getProductById(int id) throws UnavailableServerException, ServerErrorException, InvalidQueryException {
         try {
-            String json = this.objectMapper.writeValueAsString(id);
-            sendMessage(Commands.GET_PRODUCT_BY_ID, json);
+            byte[] body = this.payloadFormat.write(Schemas.INT, id);
+            sendMessage(Commands.GET_PRODUCT_BY_ID, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 try {
-                    Product product = this.objectMapper.readValue(packet.getMessage(), Product.class);
+                    Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
                     return product;
-                } catch (JsonProcessingException e) {
+                } catch (IOException e) {
                     throw new ServerErrorException();
                 }
             }
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
@@ -517,8 +786,8 @@ public class StockClient {
     public boolean increaseProductQuantity(int id, int quantity) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
             Pair<Integer, Integer> pair = new Pair<>(id, quantity);
-            String json = this.objectMapper.writeValueAsString(pair);
-            sendMessage(Commands.INCREASE_PRODUCT_QUANTITY, json);
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUE, pair);
+            sendMessage(Commands.INCREASE_PRODUCT_QUANTITY, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -529,7 +798,7 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
@@ -537,8 +806,8 @@ public class StockClient {
     public boolean increaseProductsQuantity(int[] ids, int quantity) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
             Pair<int[], Integer> pair = new Pair<>(ids, quantity);
-            String json = this.objectMapper.writeValueAsString(pair);
-            sendMessage(Commands.INCREASE_PRODUCTS_QUANTITY, json);
+            byte[] body = this.payloadFormat.write(Schemas.IDS_VALUE, pair);
+            sendMessage(Commands.INCREASE_PRODUCTS_QUANTITY, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -549,7 +818,7 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
@@ -557,8 +826,8 @@ public class StockClient {
     public boolean decreaseProductQuantity(int id, int quantity) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
         try {
             Pair<Integer, Integer> pair = new Pair<>(id, quantity);
-            String json = this.objectMapper.writeValueAsString(pair);
-            sendMessage(Commands.DECREASE_PRODUCT_QUANTITY, json);
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUE, pair);
+            sendMessage(Commands.DECREASE_PRODUCT_QUANTITY, body);
             Packet packet = receivePacket();
             if(packet.getStatus() == Status.SUCCESS) {
                 return true;
@@ -569,11 +838,84 @@ public class StockClient {
             else {
                 throw new ServerErrorException();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
+            throw new InvalidQueryException();
+        }
+    }
+
+    public Map<Integer, Integer> adjustProductsQuantity(Map<Integer, Integer> deltas) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+        try {
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUES, deltas);
+            sendMessage(Commands.ADJUST_PRODUCTS_QUANTITY, body);
+            Packet packet = receivePacket();
+            if(packet.getStatus() == Status.SUCCESS) {
+                try {
+                    return this.payloadFormat.read(Schemas.ID_VALUES, packet.getBody());
+                } catch (IOException e) {
+                    throw new ServerErrorException();
+                }
+            }
+            else {
+                throw new ServerErrorException();
+            }
+        } catch (IOException e) {
+            throw new InvalidQueryException();
+        }
+    }
+
+    public Map<Integer, Integer> pickOrder(Map<Integer, Integer> lines) throws UnavailableServerException, InvalidQueryException, ServerErrorException {
+        try {
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUES, lines);
+            sendMessage(Commands.ORDER_PICK, body);
+            Packet packet = receivePacket();
+            if(packet.getStatus() == Status.SUCCESS || packet.getStatus() == Status.FAILURE) {
+                try {
+                    return this.payloadFormat.read(Schemas.ID_VALUES, packet.getBody());
+                } catch (IOException e) {
+                    throw new ServerErrorException();
+                }
+            }
+            else {
+                throw new ServerErrorException();
+            }
+        } catch (IOException e) {
+            throw new InvalidQueryException();
+        }
+    }
+
+    public Stream<Product> streamProducts() throws UnavailableServerException {
+        return stream(Commands.GET_PRODUCTS, new byte[0], Schemas.PRODUCTS);
+    }
+
+    public Stream<Product> streamProductsByFilter(Product product) throws UnavailableServerException, InvalidQueryException {
+        try {
+            return stream(Commands.GET_PRODUCTS_BY_FILTER, this.payloadFormat.write(Schemas.PRODUCT, product), Schemas.PRODUCTS);
+        } catch (IOException e) {
             throw new InvalidQueryException();
         }
     }
 
+    public Stream<String[]> streamProductsInnerJoinGroups() throws UnavailableServerException {
+        return stream(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS, new byte[0], Schemas.ROWS);
+    }
+
+    public Stream<String[]> streamProductsInnerJoinGroupsByFilter(Product product) throws UnavailableServerException, InvalidQueryException {
+        try {
+            return stream(Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER, this.payloadFormat.write(Schemas.PRODUCT, product), Schemas.ROWS);
+        } catch (IOException e) {
+            throw new InvalidQueryException();
+        }
+    }
+
+    private <T> Stream<T> stream(int command, byte[] body, Schema<List<T>> schema) throws UnavailableServerException {
+        Packet packet = new Packet(this.packetNumber, Status.CLIENT, command, body);
+        packet.setFlags(Flags.STREAM);
+        sendPacket(packet);
+        PacketStreamIterator<T> iterator = new PacketStreamIterator<>(this, this.payloadFormat, schema);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
     public void stop() {
         try {
             sendMessage(Commands.STOP, "stop");
@@ -581,6 +923,18 @@ public class StockClient {
         }
     }
 
+    private static class VersionedPayload {
+
+        private final long version;
+        private final byte[] payload;
+
+        private VersionedPayload(long version, byte[] payload) {
+            this.version = version;
+            this.payload = payload;
+        }
+
+    }
+
     /*public void sendMessage(int command, String message) throws InterruptedException {
         Packet response;
         do {
@@ -0,0 +1,9 @@
+package com.mshevchenko.client.exceptions;
+
+public class StreamException extends RuntimeException {
+
+    public StreamException(Exception cause) {
+        super(cause);
+    }
+
+}
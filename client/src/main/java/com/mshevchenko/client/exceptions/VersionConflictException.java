@@ -0,0 +1,4 @@
+package com.mshevchenko.client.exceptions;
+
+public class VersionConflictException extends Exception {
+}
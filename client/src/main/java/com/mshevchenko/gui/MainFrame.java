@@ -4,10 +4,13 @@ import com.mshevchenko.client.StockClient;
 import com.mshevchenko.client.exceptions.InvalidQueryException;
 import com.mshevchenko.client.exceptions.ServerErrorException;
 import com.mshevchenko.client.exceptions.UnavailableServerException;
+import com.mshevchenko.client.exceptions.VersionConflictException;
 import com.mshevchenko.gui.exceptions.NoGroupsException;
 import com.mshevchenko.gui.exceptions.NoSuchGroupException;
 import com.mshevchenko.gui.exceptions.NoSuchProductException;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.GroupTotals;
+import com.mshevchenko.stock_objects.InventoryTotals;
 import com.mshevchenko.stock_objects.Product;
 
 import javax.swing.*;
@@ -361,18 +364,35 @@ public class MainFrame extends JFrame {
         }
         this.summaryCostTextField.setText(String.valueOf(summaryCost));*/
         List<String[]> products = new LinkedList<>();
-        if((this.nameTextField.getText() == null || this.nameTextField.getText().isEmpty()) && this.groupComboBox.getSelectedIndex() == 0) {
+        boolean nameFilter = this.nameTextField.getText() != null && !this.nameTextField.getText().isEmpty();
+        int groupId = this.groupComboBox.getSelectedIndex() <= 0 ? -1 : this.groups.get(this.groupComboBox.getSelectedIndex()-1).getGroupId();
+        if(!nameFilter && groupId == -1) {
             products = this.client.getProductsInnerJoinGroups();
         }
         else {
-            int groupId = this.groupComboBox.getSelectedIndex() == 0 ? -1 : this.groups.get(this.groupComboBox.getSelectedIndex()-1).getGroupId();
             String name = this.nameTextField.getText();
             products = this.client.getProductsInnerJoinGroupsByFilter(new Product(-1, groupId, name, null, null, -1, -1));
         }
-        double summaryCost = 0;
         for(String[] product : products) {
             this.tableModel.addRow(product);
-            summaryCost += Double.parseDouble(product[5]) * Integer.parseInt(product[6]);
+        }
+        double summaryCost = 0;
+        if(nameFilter) {
+            for(String[] product : products) {
+                summaryCost += Double.parseDouble(product[5]) * Integer.parseInt(product[6]);
+            }
+        }
+        else {
+            InventoryTotals totals = this.client.getInventoryTotals();
+            summaryCost = totals.getValue();
+            if(groupId != -1) {
+                summaryCost = 0;
+                for(GroupTotals group : totals.getGroups()) {
+                    if(group.getGroupId() == groupId) {
+                        summaryCost = group.getValue();
+                    }
+                }
+            }
         }
         this.summaryCostTextField.setText(String.valueOf(summaryCost));
     }
@@ -554,6 +574,12 @@ public class MainFrame extends JFrame {
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
         }
+        else if(e instanceof VersionConflictException) {
+            JOptionPane.showMessageDialog(this.getRootPane(),
+                    "It was changed by another user, reopen it and try again!",
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private void searchGroups() {
@@ -1,11 +1,34 @@
+import com.mshevchenko.client.StockAsyncClient;
 import com.mshevchenko.client.StockClient;
+import com.mshevchenko.compression.PacketCompressor;
 import com.mshevchenko.client.exceptions.InvalidQueryException;
 import com.mshevchenko.client.exceptions.ServerErrorException;
 import com.mshevchenko.client.exceptions.UnavailableServerException;
+import com.mshevchenko.client.exceptions.VersionConflictException;
+import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.Status;
+import com.mshevchenko.server.ChangePublisher;
+import com.mshevchenko.server.ResponseCache;
+import com.mshevchenko.server.StockProcessor;
+import com.mshevchenko.server.StockScheduler;
+import com.mshevchenko.server.StockSelectorServer;
 import com.mshevchenko.server.StockServer;
+import com.mshevchenko.server_interfaces.Connection;
+import com.mshevchenko.server_interfaces.Sender;
 import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.Change;
+import com.mshevchenko.stock_objects.ChangeSet;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
 import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.QuantityAdjustments;
+import com.mshevchenko.stock_objects.SortSpec;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schemas;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +37,25 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.sql.SQLException;
 
 public class StockClientTest {
@@ -69,14 +111,14 @@ public class StockClientTest {
     }
 
     @Test
-    public void updateGroupTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+    public void updateGroupTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException, VersionConflictException {
         boolean result = this.client.updateGroup(new Group(1, "TestGroup1", "Group1"));
         Assertions.assertEquals(this.stock.getGroupsByFilter(new Group(-1, "TestGroup1", null)).size(), 1);
         Assertions.assertTrue(result);
     }
 
     @Test
-    public void updateProductTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+    public void updateProductTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException, VersionConflictException {
         this.client.updateProduct(new Product(1, 3, "Product1", "Product1", "Product1", 1, 1));
         Assertions.assertEquals(this.stock.getProductsByFilter(new Product(-1, 3, null, null, null, -1, -1)).size(), 1);
     }
@@ -144,4 +186,604 @@ public class StockClientTest {
         Assertions.assertFalse(result);
     }
 
+    @Test
+    public void selectorServerTest() throws IOException, UnavailableServerException, ServerErrorException, InvalidQueryException {
+        StockSelectorServer selectorServer = new StockSelectorServer(4546, this.stock, 2);
+        Thread serverThread = new Thread(selectorServer);
+        serverThread.start();
+        StockClient selectorClient = new StockClient(InetAddress.getLocalHost(), 4546);
+        try {
+            Assertions.assertEquals(selectorClient.getGroups().size(), 3);
+            Assertions.assertTrue(selectorClient.insertProduct(new Product(4, 1, "Product4", "Product4", "Product4", 1, 1)));
+            Assertions.assertEquals(selectorClient.getProductsInnerJoinGroups().size(), 4);
+            Assertions.assertEquals(selectorClient.getProductById(4).getName(), "Product4");
+        } finally {
+            selectorClient.closeSocket();
+            selectorServer.close();
+        }
+    }
+
+    @Test
+    public void threadPerConnectionServerTest() throws IOException, UnavailableServerException, ServerErrorException {
+        StockServer threadPerConnectionServer = new StockServer(4547, this.stock, StockServer.ExecutionMode.THREAD_PER_CONNECTION);
+        Thread serverThread = new Thread(threadPerConnectionServer);
+        serverThread.start();
+        List<Socket> idleSockets = new LinkedList<>();
+        StockClient threadPerConnectionClient = new StockClient(InetAddress.getLocalHost(), 4547);
+        try {
+            for(int i = 0; i <= Runtime.getRuntime().availableProcessors(); i++) {
+                idleSockets.add(new Socket(InetAddress.getLocalHost(), 4547));
+            }
+            Assertions.assertEquals(threadPerConnectionClient.getGroups().size(), 3);
+        } finally {
+            for(Socket socket : idleSockets) {
+                socket.close();
+            }
+            threadPerConnectionClient.closeSocket();
+            threadPerConnectionServer.close();
+        }
+    }
+
+    @Test
+    public void secureSessionTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        this.client.startSecureSession();
+        Assertions.assertEquals(this.client.getGroups().size(), 3);
+        Assertions.assertTrue(this.client.increaseProductQuantity(1, 10));
+        Assertions.assertEquals(this.client.getProductById(1).getQuantity(), 40);
+        this.client.closeSocket();
+        Assertions.assertEquals(this.client.getGroupById(2).getName(), "Group2");
+    }
+
+    @Test
+    public void binaryPayloadTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Assertions.assertEquals(this.client.getGroups().size(), 3);
+        Assertions.assertEquals(this.client.getGroupsByFilter(new Group(-1, "Group1", null)).size(), 1);
+        Assertions.assertTrue(this.client.insertProduct(new Product(4, 1, "\u041f\u0440\u043e\u0434\u0443\u043a\u0442 4", null, "Product4", 2.5, 7)));
+        Assertions.assertEquals(this.client.getProductById(4), new Product(4, 1, "\u041f\u0440\u043e\u0434\u0443\u043a\u0442 4", null, "Product4", 2.5, 7));
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 4);
+        Assertions.assertTrue(this.client.increaseProductsQuantity(new int[]{1, 4}, 3));
+        Assertions.assertTrue(this.client.decreaseProductQuantity(4, 10));
+        Assertions.assertTrue(this.client.deleteProductsByIds(new int[]{4}));
+        this.client.closeSocket();
+        Assertions.assertEquals(this.client.getGroupById(2).getName(), "Group2");
+        this.client.startSecureSession();
+        Assertions.assertEquals(this.client.getProducts().size(), 3);
+    }
+
+    @Test
+    public void compressionTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        PacketCompressor serverCompressor = new PacketCompressor(64, 1);
+        this.server.setCompressor(serverCompressor);
+        PacketCompressor clientCompressor = new PacketCompressor(64, 1);
+        this.client.setCompressor(clientCompressor);
+        String description = "Description ".repeat(50);
+        Assertions.assertTrue(this.client.insertProduct(new Product(4, 1, "Product4", description, "Product4", 1, 1)));
+        Assertions.assertEquals(this.client.getProductById(4).getDescription(), description);
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 4);
+        Assertions.assertTrue(clientCompressor.getCompressedPackets() > 0);
+        Assertions.assertTrue(serverCompressor.getCompressedPackets() > 0);
+        this.client.closeSocket();
+        Assertions.assertEquals(this.client.getProducts().size(), 4);
+        this.client.setCompressor(null);
+        Assertions.assertEquals(this.client.getProducts().size(), 4);
+    }
+
+    @Test
+    public void streamProductsTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        int batchSize = StockProcessor.STREAM_BATCH_SIZE;
+        StockProcessor.STREAM_BATCH_SIZE = 2;
+        try {
+            for(int i = 4; i <= 9; i++) {
+                Assertions.assertTrue(this.client.insertProduct(new Product(i, 2, "Product" + i, "Product" + i, "Product" + i, i, i)));
+            }
+            try(Stream<Product> products = this.client.streamProducts()) {
+                Assertions.assertEquals(products.map(Product::getProductId).collect(Collectors.toList()), List.of(1, 2, 3, 4, 5, 6, 7, 8, 9));
+            }
+            try(Stream<String[]> rows = this.client.streamProductsInnerJoinGroupsByFilter(new Product(-1, 2, null, null, null, -1, -1))) {
+                Assertions.assertEquals(rows.count(), 7);
+            }
+            try(Stream<Product> products = this.client.streamProducts()) {
+                Assertions.assertEquals(products.findFirst().get().getProductId(), 1);
+            }
+            this.client.setPayloadFormat(PayloadFormat.BINARY);
+            try(Stream<Product> products = this.client.streamProductsByFilter(new Product(-1, 1, null, null, null, -1, -1))) {
+                Assertions.assertEquals(products.count(), 2);
+            }
+            Assertions.assertEquals(this.client.getGroups().size(), 3);
+        } finally {
+            StockProcessor.STREAM_BATCH_SIZE = batchSize;
+        }
+    }
+
+    @Test
+    public void pageTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        Page<Product> page = this.client.getProductsPage(new PageRequest<>(0, 2));
+        Assertions.assertEquals(page.getItems().size(), 2);
+        Assertions.assertEquals(page.getNextCursor(), 2);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        page = this.client.getProductsPage(new PageRequest<>(page.getNextCursor(), 2));
+        Assertions.assertEquals(page.getItems().get(0).getName(), "Product3");
+        Assertions.assertEquals(page.getNextCursor(), 0);
+        Page<String[]> rows = this.client.getProductsInnerJoinGroupsPage(new PageRequest<>(0, 5, new Product(-1, 1, null, null, null, -1, -1)));
+        Assertions.assertEquals(rows.getItems().size(), 2);
+        Assertions.assertEquals(rows.getItems().get(1)[1], "Group1");
+        Page<Group> groups = this.client.getGroupsPage(new PageRequest<>(1, 10, new Group(-1, "group%", null)));
+        Assertions.assertEquals(groups.getItems().size(), 2);
+        Assertions.assertEquals(groups.getNextCursor(), 0);
+    }
+
+    @Test
+    public void sortedTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        List<Product> products = this.client.getProductsSorted(new Product(), new SortSpec(SortSpec.Column.PRICE, true, 2));
+        Assertions.assertEquals(products.size(), 2);
+        Assertions.assertEquals(products.get(0).getName(), "Product3");
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        List<String[]> rows = this.client.getProductsInnerJoinGroupsSorted(new Product(-1, 1, null, null, null, -1, -1), new SortSpec(SortSpec.Column.QUANTITY, false, 0));
+        Assertions.assertEquals(rows.size(), 2);
+        Assertions.assertEquals(rows.get(0)[2], "Product2");
+    }
+
+    @Test
+    public void inventoryTotalsTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        InventoryTotals totals = this.client.getInventoryTotals();
+        Assertions.assertEquals(totals.getValue(), 130, 1e-9);
+        Assertions.assertEquals(totals.getGroups().get(1).getQuantity(), 10);
+        this.client.increaseProductQuantity(3, 10);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        totals = this.client.getInventoryTotals();
+        Assertions.assertEquals(totals.getValue(), 165, 1e-9);
+        Assertions.assertEquals(totals.getItemCount(), 3);
+        Assertions.assertEquals(totals.getGroups().get(1).getQuantity(), 20);
+    }
+
+    @Test
+    public void insertProductsTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        List<Product> products = new ArrayList<>();
+        for(int i = 4; i <= 8; i++) {
+            products.add(new Product(i, 2, "Product" + i, "Product", "Product", 2, 1));
+        }
+        products.add(2, new Product(0, 2, "Product1", "Product", "Product", 2, 1));
+        int size = StockClient.INSERT_REQUEST_SIZE;
+        StockClient.INSERT_REQUEST_SIZE = 4;
+        try {
+            Assertions.assertArrayEquals(this.client.insertProducts(products), new int[] {1, 1, 0, 1, 1, 1});
+        } finally {
+            StockClient.INSERT_REQUEST_SIZE = size;
+        }
+        Assertions.assertEquals(this.stock.getProducts().size(), 8);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Assertions.assertArrayEquals(this.client.insertGroups(List.of(new Group(0, "Group4", null), new Group(0, "Group2", null))), new int[] {1, 0});
+        Assertions.assertEquals(this.client.getInventoryTotals().getGroups().get(1).getItemCount(), 6);
+    }
+
+    @Test
+    public void adjustProductsQuantityTest() throws IOException, UnavailableServerException, ServerErrorException, InvalidQueryException {
+        Map<Integer, Integer> results = this.client.adjustProductsQuantity(Map.of(1, -30, 3, -11));
+        Assertions.assertEquals(results, Map.of(1, QuantityAdjustments.ADJUSTED, 3, QuantityAdjustments.INSUFFICIENT_QUANTITY));
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        results = this.client.adjustProductsQuantity(Map.of(2, 7, 42, 1));
+        Assertions.assertEquals(results, Map.of(2, QuantityAdjustments.ADJUSTED, 42, QuantityAdjustments.NOT_FOUND));
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 0);
+        Assertions.assertEquals(this.stock.getProductById(2).getQuantity(), 27);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 10);
+        this.client.setPayloadFormat(PayloadFormat.JSON);
+        this.client.closeSocket();
+        Map<Integer, Integer> broken = new LinkedHashMap<>();
+        broken.put(2, 1);
+        broken.put(3, null);
+        try(StockAsyncClient asyncClient = new StockAsyncClient(InetAddress.getLocalHost(), 4545)) {
+            CompletableFuture<Map<Integer, Integer>> adjusted = asyncClient.adjustProductsQuantity(broken);
+            Assertions.assertThrows(ExecutionException.class, () -> adjusted.get(5, TimeUnit.SECONDS));
+            CompletableFuture<Map<Integer, Integer>> picked = asyncClient.pickOrder(broken);
+            Assertions.assertThrows(ExecutionException.class, () -> picked.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(asyncClient.getProductById(2).join().getQuantity(), 27);
+        }
+    }
+
+    @Test
+    public void versionConflictTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException, VersionConflictException {
+        Product product = this.client.getProductById(1);
+        Assertions.assertEquals(product.getVersion(), 1);
+        product.setName("Edited");
+        Assertions.assertTrue(this.client.updateProduct(product));
+        product.setName("Lost");
+        Assertions.assertThrows(VersionConflictException.class, () -> this.client.updateProduct(product));
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Product current = this.client.getProductById(1);
+        Assertions.assertEquals(current.getName(), "Edited");
+        Assertions.assertEquals(current.getVersion(), 2);
+        current.setName("Retried");
+        Assertions.assertTrue(this.client.updateProduct(current));
+        Group group = this.client.getGroupById(1);
+        Assertions.assertTrue(this.client.updateGroup(group));
+        Assertions.assertThrows(VersionConflictException.class, () -> this.client.updateGroup(group));
+    }
+
+    @Test
+    public void responseCacheTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        ResponseCache cache = this.server.getResponseCache();
+        this.client.setConditionalReads(false);
+        Assertions.assertEquals(this.client.getGroups().size(), 3);
+        Assertions.assertEquals(this.client.getGroups().size(), 3);
+        Assertions.assertEquals(cache.getMisses(), 1);
+        Assertions.assertEquals(cache.getHits(), 1);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Assertions.assertEquals(this.client.getGroups().size(), 3);
+        Assertions.assertEquals(cache.getMisses(), 2);
+        Assertions.assertTrue(this.client.insertGroup(new Group(0, "Group4", "Group4")));
+        Assertions.assertEquals(cache.size(), 0);
+        Assertions.assertEquals(this.client.getGroups().size(), 4);
+        Assertions.assertEquals(this.client.getInventoryTotals().getQuantity(), this.client.getInventoryTotals().getQuantity());
+        Assertions.assertEquals(cache.getHits(), 2);
+        this.client.setCompressor(PacketCompressor.DEFAULT);
+        Assertions.assertEquals(this.client.getGroups().size(), 4);
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 3);
+        long invalidations = cache.getInvalidations();
+        Assertions.assertFalse(this.client.deleteGroupById(42));
+        Assertions.assertEquals(cache.getInvalidations(), invalidations);
+        Assertions.assertEquals(this.stock.insertGroup(new Group(0, "Group5", "Group5")), 1);
+        Assertions.assertEquals(cache.getInvalidations(), invalidations + 1);
+        Assertions.assertEquals(this.client.getGroups().size(), 5);
+    }
+
+    @Test
+    public void conditionalReadTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        ResponseCache cache = this.server.getResponseCache();
+        List<Group> groups = this.client.getGroups();
+        long version = this.client.getLastDataVersion();
+        Assertions.assertEquals(version, cache.getVersion());
+        Assertions.assertEquals(version, this.stock.getChangeLog().getRevision());
+        Assertions.assertEquals(this.client.getGroups(), groups);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 1);
+        Assertions.assertEquals(cache.getMisses(), 1);
+        Assertions.assertEquals(cache.getHits(), 0);
+        Assertions.assertEquals(this.client.getGroupsByFilter(new Group(-1, "Group1", null)).size(), 1);
+        Assertions.assertEquals(this.client.getGroupsByFilter(new Group(-1, "Group1", null)).size(), 1);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 2);
+        Assertions.assertTrue(this.client.insertGroup(new Group(0, "Group4", "Group4")));
+        Assertions.assertEquals(this.client.getGroups().size(), 4);
+        Assertions.assertTrue(this.client.getLastDataVersion() > version);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 2);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 3);
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 3);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 3);
+        Assertions.assertEquals(this.stock.updateGroup(new Group(2, "Group2", "Renamed")), 1);
+        Assertions.assertEquals(this.client.getProductsInnerJoinGroups().size(), 3);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 3);
+        Assertions.assertEquals(this.client.getLastDataVersion(), this.stock.getChangeLog().getRevision());
+        this.client.setConditionalReads(false);
+        Assertions.assertEquals(this.client.getGroups().size(), 4);
+        Assertions.assertEquals(this.client.getNotModifiedResponses(), 3);
+    }
+
+    @Test
+    public void syncInventoryTest() throws UnavailableServerException, ServerErrorException, InvalidQueryException {
+        Map<Integer, Group> groups = new HashMap<>();
+        Map<Integer, Product> products = new HashMap<>();
+        long revision = this.client.syncInventory(groups, products, 0);
+        Assertions.assertEquals(revision, this.stock.getChangeLog().getRevision());
+        Assertions.assertEquals(groups.size(), 3);
+        Assertions.assertEquals(products.size(), 3);
+        Assertions.assertTrue(this.client.decreaseProductQuantity(1, 5));
+        Assertions.assertTrue(this.client.insertProduct(new Product(0, 1, "Product4", "Product4", "Product4", 4.5, 40)));
+        Assertions.assertTrue(this.client.deleteGroupById(2));
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        ChangeSet changes = this.client.getChangesSince(revision);
+        Assertions.assertFalse(changes.isResyncRequired());
+        Assertions.assertEquals(changes.getChanges().size(), 4);
+        revision = this.client.syncInventory(groups, products, revision);
+        Assertions.assertEquals(revision, changes.getRevision());
+        Assertions.assertEquals(new ArrayList<>(groups.values()), this.stock.getGroups());
+        Assertions.assertEquals(new ArrayList<>(products.values()), this.stock.getProducts());
+        Assertions.assertEquals(products.get(1).getVersion(), this.stock.getProductById(1).getVersion());
+        Assertions.assertEquals(this.client.syncInventory(groups, products, revision), revision);
+    }
+
+    @Test
+    public void subscribeTest() throws IOException, InterruptedException {
+        this.client.closeSocket();
+        StockSelectorServer selectorServer = new StockSelectorServer(4549, this.stock, 1);
+        Thread serverThread = new Thread(selectorServer);
+        serverThread.start();
+        BlockingQueue<ChangeSet> pushed = new LinkedBlockingQueue<>();
+        try(StockAsyncClient subscriber = new StockAsyncClient(InetAddress.getLocalHost(), 4549);
+            StockAsyncClient writer = new StockAsyncClient(InetAddress.getLocalHost(), 4549)) {
+            long revision = subscriber.subscribe(pushed::add).join();
+            Assertions.assertEquals(revision, this.stock.getChangeLog().getRevision());
+            Assertions.assertEquals(selectorServer.getChangePublisher().getSubscriptions(), 1);
+            Assertions.assertTrue(writer.decreaseProductQuantity(1, 5).join());
+            ChangeSet changes = pushed.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(changes);
+            Assertions.assertFalse(changes.isResyncRequired());
+            Assertions.assertEquals(changes.getChanges().size(), 1);
+            Assertions.assertEquals(changes.getChanges().get(0).getType(), Change.QUANTITY_CHANGED);
+            Assertions.assertEquals(changes.getChanges().get(0).getProduct().getQuantity(), 25);
+            Assertions.assertEquals(changes.getRevision(), revision + 1);
+            Assertions.assertTrue(subscriber.unsubscribe().join());
+            Assertions.assertEquals(selectorServer.getChangePublisher().getSubscriptions(), 0);
+            Assertions.assertTrue(writer.decreaseProductQuantity(1, 5).join());
+            Assertions.assertNull(pushed.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            selectorServer.close();
+        }
+    }
+
+    @Test
+    public void changePublisherCoalescingTest() throws Exception {
+        ChangePublisher publisher = new ChangePublisher(this.stock.getChangeLog(), 2, ChangePublisher.MAX_PENDING_BYTES);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<ByteBuffer> frames = new LinkedBlockingQueue<>();
+        try {
+            publisher.subscribe(connection(frame -> {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                frames.add(frame);
+            }), () -> PayloadFormat.JSON);
+            for(int i = 1; i <= 5; i++) {
+                publishQuantityChange(publisher, i);
+                if(i == 1) {
+                    Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+                }
+            }
+            Assertions.assertEquals(publisher.getCoalesced(), 1);
+            release.countDown();
+            assertCoalesced(frames);
+        } finally {
+            release.countDown();
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void changePublisherBacklogTest() throws Exception {
+        ChangePublisher publisher = new ChangePublisher(this.stock.getChangeLog(), 2, 0);
+        BacklogSender sender = new BacklogSender();
+        try {
+            publisher.subscribe(connection(sender), () -> PayloadFormat.JSON);
+            for(int i = 1; i <= 5; i++) {
+                publishQuantityChange(publisher, i);
+                if(i == 1) {
+                    long deadline = System.currentTimeMillis() + 5000;
+                    while(publisher.getDelivered() < 1 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(5);
+                    }
+                }
+            }
+            Assertions.assertEquals(publisher.getCoalesced(), 1);
+            Assertions.assertEquals(publisher.getDelivered(), 1);
+            Assertions.assertEquals(sender.frames.size(), 1);
+            Assertions.assertEquals(sender.getPendingBytes(), sender.frames.peek().remaining());
+            sender.flush();
+            assertCoalesced(sender.frames);
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    public void changePublisherSharedFrameTest() throws Exception {
+        ChangePublisher publisher = new ChangePublisher(this.stock.getChangeLog());
+        BacklogSender first = new BacklogSender();
+        BacklogSender second = new BacklogSender();
+        try {
+            publisher.subscribe(connection(first), () -> PayloadFormat.BINARY);
+            publisher.subscribe(connection(second), () -> PayloadFormat.BINARY);
+            publishQuantityChange(publisher, 1);
+            ByteBuffer frame = first.frames.poll(5, TimeUnit.SECONDS);
+            ByteBuffer other = second.frames.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(frame);
+            Assertions.assertNotNull(other);
+            Assertions.assertSame(frame.array(), other.array());
+            ChangeSet changes = PayloadFormat.BINARY.read(Schemas.CHANGE_SET, new PacketCodec().decode(frame).getBody());
+            Assertions.assertEquals(changes.getChanges().get(0).getProduct().getQuantity(), 31);
+        } finally {
+            publisher.close();
+        }
+    }
+
+    private static byte[] frame(PacketCodec codec, Packet packet) {
+        ByteBuffer frame = codec.encode(packet);
+        return Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+    }
+
+    private void publishQuantityChange(ChangePublisher publisher, int published) throws InterruptedException {
+        this.stock.increaseProductQuantity(1, 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while(publisher.getPublished() < published && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(publisher.getPublished(), published);
+    }
+
+    private static void assertCoalesced(BlockingQueue<ByteBuffer> frames) throws Exception {
+        PacketCodec codec = new PacketCodec();
+        List<ChangeSet> received = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            ByteBuffer frame = frames.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(frame);
+            received.add(PayloadFormat.JSON.read(Schemas.CHANGE_SET, codec.decode(frame).getBody()));
+        }
+        Assertions.assertNull(frames.poll(200, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(received.get(0).getChanges().get(0).getProduct().getQuantity(), 31);
+        Assertions.assertTrue(received.get(1).isResyncRequired());
+        Assertions.assertEquals(received.get(2).getChanges().get(0).getProduct().getQuantity(), 35);
+    }
+
+    private static Connection connection(Sender sender) {
+        PacketCodec codec = new PacketCodec();
+        return new Connection() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public PacketCodec getCodec() {
+                return codec;
+            }
+
+            @Override
+            public Sender getSender() {
+                return sender;
+            }
+        };
+    }
+
+    private static class BacklogSender implements Sender {
+
+        private final BlockingQueue<ByteBuffer> frames = new LinkedBlockingQueue<>();
+        private long pendingBytes;
+        private boolean flushed;
+        private Runnable resume;
+
+        @Override
+        public synchronized void send(ByteBuffer packet) {
+            if(!this.flushed) {
+                this.pendingBytes += packet.remaining();
+            }
+            this.frames.add(packet);
+        }
+
+        @Override
+        public synchronized long getPendingBytes() {
+            return this.pendingBytes;
+        }
+
+        @Override
+        public synchronized boolean resumeWhenDrained(long limit, Runnable resume) {
+            if(this.pendingBytes <= limit) {
+                return false;
+            }
+            this.resume = resume;
+            return true;
+        }
+
+        private void flush() {
+            Runnable resume;
+            synchronized(this) {
+                this.flushed = true;
+                this.pendingBytes = 0;
+                resume = this.resume;
+                this.resume = null;
+            }
+            if(resume != null) {
+                resume.run();
+            }
+        }
+
+    }
+
+    @Test
+    public void pickOrderTest() throws IOException, UnavailableServerException, ServerErrorException, InvalidQueryException {
+        Map<Integer, Integer> failures = this.client.pickOrder(Map.of(1, 5, 3, 11));
+        Assertions.assertEquals(failures, Map.of(3, QuantityAdjustments.INSUFFICIENT_QUANTITY));
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 30);
+        this.client.setPayloadFormat(PayloadFormat.BINARY);
+        Assertions.assertTrue(this.client.pickOrder(Map.of(1, 5, 3, 10)).isEmpty());
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 25);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 0);
+        this.client.closeSocket();
+        try(StockAsyncClient asyncClient = new StockAsyncClient(InetAddress.getLocalHost(), 4545)) {
+            Assertions.assertEquals(asyncClient.pickOrder(Map.of(1, 1, 42, 1)).join(), Map.of(42, QuantityAdjustments.NOT_FOUND));
+            Assertions.assertTrue(asyncClient.pickOrder(Map.of(1, 1)).join().isEmpty());
+        }
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 24);
+    }
+
+    @Test
+    public void pipelinedClientTest() throws IOException {
+        StockSelectorServer selectorServer = new StockSelectorServer(4548, this.stock, 2);
+        Thread serverThread = new Thread(selectorServer);
+        serverThread.start();
+        for(int port : new int[]{4545, 4548}) {
+            try(StockAsyncClient asyncClient = new StockAsyncClient(InetAddress.getLocalHost(), port)) {
+                int quantity = asyncClient.getProductById(2).join().getQuantity();
+                List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+                List<CompletableFuture<Product>> reads = new ArrayList<>();
+                for(int i = 0; i < 50; i++) {
+                    writes.add(asyncClient.increaseProductQuantity(2, 1));
+                    reads.add(asyncClient.getProductById(2));
+                    reads.add(asyncClient.getProductById(2));
+                }
+                CompletableFuture<List<Group>> groups = asyncClient.getGroups();
+                for(int i = 0; i < 50; i++) {
+                    Assertions.assertTrue(writes.get(i).join());
+                    Assertions.assertEquals(reads.get(2 * i).join().getQuantity(), quantity + i + 1);
+                    Assertions.assertEquals(reads.get(2 * i + 1).join().getQuantity(), quantity + i + 1);
+                }
+                Assertions.assertEquals(groups.join().size(), 3);
+                asyncClient.setPayloadFormat(PayloadFormat.BINARY);
+                Assertions.assertEquals(asyncClient.getProductsInnerJoinGroups().join().size(), 3);
+                Assertions.assertNull(asyncClient.getGroupById(42).join());
+                Assertions.assertEquals(asyncClient.getPendingRequests(), 0);
+            }
+        }
+        selectorServer.close();
+    }
+
+
+    @Test
+    public void schedulerBackpressureTest() throws IOException, UnavailableServerException, ServerErrorException {
+        Queue<Runnable> tasks = new LinkedList<>();
+        List<Integer> processed = new ArrayList<>();
+        AtomicInteger resumed = new AtomicInteger();
+        PacketCodec codec = new PacketCodec();
+        StockScheduler scheduler = new StockScheduler((frame, offset, length) -> processed.add(
+                ByteBuffer.wrap(frame, offset, length).getInt(offset + 13) & PacketCodec.COMMAND_MASK), tasks::add, 2,
+                resumed::incrementAndGet);
+        scheduler.decrypt(frame(codec, new Packet(1, Status.CLIENT, Commands.GET_GROUPS, "")));
+        Assertions.assertTrue(scheduler.isReady());
+        scheduler.decrypt(frame(codec, new Packet(2, Status.CLIENT, Commands.INSERT_GROUP, "")));
+        Assertions.assertFalse(scheduler.isReady());
+        tasks.poll().run();
+        Assertions.assertTrue(scheduler.isReady());
+        Assertions.assertEquals(resumed.get(), 1);
+        scheduler.decrypt(frame(codec, new Packet(3, Status.CLIENT, Commands.SET_PAYLOAD_FORMAT, "")));
+        Assertions.assertFalse(scheduler.isReady());
+        Assertions.assertEquals(processed, List.of(Commands.GET_GROUPS));
+        tasks.poll().run();
+        Assertions.assertEquals(processed, List.of(Commands.GET_GROUPS, Commands.INSERT_GROUP));
+        Assertions.assertFalse(scheduler.isReady());
+        tasks.poll().run();
+        Assertions.assertEquals(processed, List.of(Commands.GET_GROUPS, Commands.INSERT_GROUP, Commands.SET_PAYLOAD_FORMAT));
+        Assertions.assertTrue(scheduler.isReady());
+        Assertions.assertEquals(resumed.get(), 2);
+        scheduler.decrypt(frame(codec, new Packet(-1, Status.ERROR, Commands.UNKNOWN, "error")));
+        Assertions.assertEquals(processed.size(), 3);
+        Assertions.assertFalse(scheduler.isReady());
+        tasks.poll().run();
+        Assertions.assertEquals(processed.size(), 4);
+        Assertions.assertTrue(scheduler.isReady());
+        Assertions.assertEquals(scheduler.getInFlight(), 0);
+        Assertions.assertEquals(resumed.get(), 3);
+
+        StockSelectorServer selectorServer = new StockSelectorServer(4550, this.stock, 1);
+        Thread serverThread = new Thread(selectorServer);
+        serverThread.start();
+        try(StockAsyncClient asyncClient = new StockAsyncClient(InetAddress.getLocalHost(), 4550)) {
+            List<CompletableFuture<Product>> reads = new ArrayList<>();
+            for(int i = 0; i < 4 * StockScheduler.MAX_IN_FLIGHT; i++) {
+                if(i == 2 * StockScheduler.MAX_IN_FLIGHT) {
+                    asyncClient.setPayloadFormat(PayloadFormat.BINARY);
+                }
+                reads.add(asyncClient.getProductById(1 + i % 3));
+            }
+            StockClient blockingClient = new StockClient(InetAddress.getLocalHost(), 4550);
+            Assertions.assertEquals(blockingClient.getGroups().size(), 3);
+            blockingClient.closeSocket();
+            for(int i = 0; i < reads.size(); i++) {
+                Assertions.assertEquals(reads.get(i).join().getProductId(), 1 + i % 3);
+            }
+            Assertions.assertEquals(asyncClient.getPendingRequests(), 0);
+        } finally {
+            selectorServer.close();
+        }
+    }
+
 }
@@ -0,0 +1,178 @@
+package com.mshevchenko.compression;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class PacketCompressor {
+
+    public static final String NAME = "deflate";
+    public static final int DEFAULT_THRESHOLD = 1024;
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+    public static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+    private static final int INITIAL_DECOMPRESSED_LENGTH = 8192;
+    public static final PacketCompressor DEFAULT = new PacketCompressor(DEFAULT_THRESHOLD, DEFAULT_LEVEL);
+
+    private int threshold;
+    private int level;
+    private int maxDecompressedLength;
+    private ThreadLocal<Deflater> deflater;
+    private ThreadLocal<Inflater> inflater;
+    private LongAdder compressedPackets = new LongAdder();
+    private LongAdder skippedPackets = new LongAdder();
+    private LongAdder uncompressedBytes = new LongAdder();
+    private LongAdder compressedBytes = new LongAdder();
+    private LongAdder compressNanos = new LongAdder();
+    private LongAdder decompressedPackets = new LongAdder();
+    private LongAdder decompressNanos = new LongAdder();
+
+    public PacketCompressor(int threshold, int level) {
+        this(threshold, level, MAX_DECOMPRESSED_LENGTH);
+    }
+
+    public PacketCompressor(int threshold, int level, int maxDecompressedLength) {
+        if(level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level " + level);
+        }
+        if(maxDecompressedLength < 0) {
+            throw new IllegalArgumentException("maxDecompressedLength " + maxDecompressedLength);
+        }
+        this.threshold = threshold;
+        this.level = level;
+        this.maxDecompressedLength = maxDecompressedLength;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(this.level, true));
+        this.inflater = ThreadLocal.withInitial(() -> new Inflater(true));
+    }
+
+    public byte[] compress(byte[] body) {
+        if(body.length < this.threshold) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = this.deflater.get();
+        byte[] compressed = new byte[body.length];
+        int length = 4;
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            while(!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            if(!deflater.finished()) {
+                this.skippedPackets.increment();
+                return null;
+            }
+        } finally {
+            deflater.reset();
+            this.compressNanos.add(System.nanoTime() - start);
+        }
+        compressed[0] = (byte) (body.length >>> 24);
+        compressed[1] = (byte) (body.length >>> 16);
+        compressed[2] = (byte) (body.length >>> 8);
+        compressed[3] = (byte) body.length;
+        this.compressedPackets.increment();
+        this.uncompressedBytes.add(body.length);
+        this.compressedBytes.add(length);
+        byte[] result = new byte[length];
+        System.arraycopy(compressed, 0, result, 0, length);
+        return result;
+    }
+
+    public byte[] decompress(byte[] compressed) throws DataFormatException {
+        if(compressed.length < 4) {
+            throw new DataFormatException("missing length");
+        }
+        int length = ((compressed[0] & 0xff) << 24) | ((compressed[1] & 0xff) << 16)
+                | ((compressed[2] & 0xff) << 8) | (compressed[3] & 0xff);
+        if(length < 0 || length > this.maxDecompressedLength) {
+            throw new DataFormatException("invalid length " + length);
+        }
+        long start = System.nanoTime();
+        Inflater inflater = this.inflater.get();
+        byte[] body = new byte[Math.min(length, INITIAL_DECOMPRESSED_LENGTH)];
+        try {
+            inflater.setInput(compressed, 4, compressed.length - 4);
+            int position = 0;
+            while(!inflater.finished()) {
+                if(position == body.length) {
+                    if(position == length) {
+                        if(inflater.inflate(new byte[1]) > 0) {
+                            throw new DataFormatException("length mismatch");
+                        }
+                        break;
+                    }
+                    body = Arrays.copyOf(body, (int) Math.min(length, body.length * 2L));
+                }
+                int read = inflater.inflate(body, position, body.length - position);
+                if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                position += read;
+            }
+            if(position != length || !inflater.finished()) {
+                throw new DataFormatException("length mismatch");
+            }
+        } finally {
+            inflater.reset();
+            this.decompressNanos.add(System.nanoTime() - start);
+        }
+        this.decompressedPackets.increment();
+        return body;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMaxDecompressedLength() {
+        return maxDecompressedLength;
+    }
+
+    public long getCompressedPackets() {
+        return this.compressedPackets.sum();
+    }
+
+    public long getSkippedPackets() {
+        return this.skippedPackets.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return this.uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return this.compressedBytes.sum();
+    }
+
+    public long getDecompressedPackets() {
+        return this.decompressedPackets.sum();
+    }
+
+    public double getCompressionRatio() {
+        long compressed = this.compressedBytes.sum();
+        return compressed == 0 ? 1 : (double) this.uncompressedBytes.sum() / compressed;
+    }
+
+    public long getCompressTime(TimeUnit unit) {
+        return unit.convert(this.compressNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getDecompressTime(TimeUnit unit) {
+        return unit.convert(this.decompressNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s level=%d threshold=%d compressed=%d skipped=%d ratio=%.2f compress=%dms decompressed=%d decompress=%dms",
+                NAME, this.level, this.threshold, getCompressedPackets(), getSkippedPackets(), getCompressionRatio(),
+                getCompressTime(TimeUnit.MILLISECONDS), getDecompressedPackets(), getDecompressTime(TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -1,5 +1,10 @@
 package com.mshevchenko.crc16;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class CRC16Creator {
 
     private static final int[] table = {
@@ -37,9 +42,39 @@ public class CRC16Creator {
             0x8201, 0x42C0, 0x4380, 0x8341, 0x4100, 0x81C1, 0x8081, 0x4040,
     };
 
+    private static final int[] table1 = nextTable(table);
+    private static final int[] table2 = nextTable(table1);
+    private static final int[] table3 = nextTable(table2);
+    private static final int[] table4 = nextTable(table3);
+    private static final int[] table5 = nextTable(table4);
+    private static final int[] table6 = nextTable(table5);
+    private static final int[] table7 = nextTable(table6);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
     private CRC16Creator() {}
 
+    private static int[] nextTable(int[] previous) {
+        int[] next = new int[256];
+        for (int i = 0; i < 256; i++) {
+            next[i] = (previous[i] >>> 8) ^ table[previous[i] & 0xff];
+        }
+        return next;
+    }
+
     public static short createCRC16(byte[] arr, int offset, int length){
+        int crc = 0x0000;
+        int i = offset;
+        int end = offset + length;
+        for (; i <= end - 8; i += 8) {
+            crc = slice8(crc, (long) LONG_VIEW.get(arr, i));
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ table[(crc ^ arr[i]) & 0xff];
+        }
+        return (short) crc;
+    }
+
+    public static short createCRC16Bytewise(byte[] arr, int offset, int length){
         int crc = 0x0000;
         for (int i = offset; i < offset + length; i++) {
             crc = (crc >>> 8) ^ table[(crc ^ arr[i]) & 0xff];
@@ -47,4 +82,37 @@ public class CRC16Creator {
         return (short) crc;
     }
 
+    public static short createCRC16(ByteBuffer buffer) {
+        return createCRC16(buffer, buffer.position(), buffer.remaining());
+    }
+
+    public static short createCRC16(ByteBuffer buffer, int offset, int length) {
+        if(buffer.hasArray()) {
+            return createCRC16(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        ByteBuffer littleEndian = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int crc = 0x0000;
+        int i = offset;
+        int end = offset + length;
+        for (; i <= end - 8; i += 8) {
+            crc = slice8(crc, littleEndian.getLong(i));
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ table[(crc ^ buffer.get(i)) & 0xff];
+        }
+        return (short) crc;
+    }
+
+    private static int slice8(int crc, long bytes) {
+        long x = bytes ^ crc;
+        return table7[(int) x & 0xff]
+                ^ table6[(int) (x >>> 8) & 0xff]
+                ^ table5[(int) (x >>> 16) & 0xff]
+                ^ table4[(int) (x >>> 24) & 0xff]
+                ^ table3[(int) (x >>> 32) & 0xff]
+                ^ table2[(int) (x >>> 40) & 0xff]
+                ^ table1[(int) (x >>> 48) & 0xff]
+                ^ table[(int) (x >>> 56) & 0xff];
+    }
+
 }
@@ -0,0 +1,76 @@
+package com.mshevchenko.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+public class AesEcbCipher implements PacketCipher {
+
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String ENCRYPTION_STRING = "RfUjXn2r5u8x/A%D*G-KaPdSgVkYp3s6";
+    public static final AesEcbCipher DEFAULT = new AesEcbCipher(new SecretKeySpec(ENCRYPTION_STRING.getBytes(), "AES"));
+
+    private SecretKey key;
+    private ThreadLocal<Cipher> encryptCipher;
+    private ThreadLocal<Cipher> decryptCipher;
+
+    public AesEcbCipher(SecretKey key) {
+        this.key = key;
+        this.encryptCipher = new ThreadLocal<>();
+        this.decryptCipher = new ThreadLocal<>();
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int length) {
+        return (length / 16 + 1) * 16;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    @Override
+    public int encrypt(byte[] message, ByteBuffer destination) throws GeneralSecurityException {
+        Cipher cipher = getCipher(this.encryptCipher, Cipher.ENCRYPT_MODE);
+        try {
+            return cipher.doFinal(ByteBuffer.wrap(message), destination);
+        } catch (GeneralSecurityException e) {
+            this.encryptCipher.remove();
+            throw e;
+        }
+    }
+
+    @Override
+    public byte[] decrypt(ByteBuffer encryptedMessage) throws GeneralSecurityException {
+        Cipher cipher = getCipher(this.decryptCipher, Cipher.DECRYPT_MODE);
+        try {
+            if(encryptedMessage.hasArray()) {
+                byte[] message = cipher.doFinal(encryptedMessage.array(),
+                        encryptedMessage.arrayOffset() + encryptedMessage.position(), encryptedMessage.remaining());
+                encryptedMessage.position(encryptedMessage.limit());
+                return message;
+            }
+            byte[] message = new byte[cipher.getOutputSize(encryptedMessage.remaining())];
+            int length = cipher.doFinal(encryptedMessage, ByteBuffer.wrap(message));
+            return length == message.length ? message : Arrays.copyOf(message, length);
+        } catch (GeneralSecurityException e) {
+            this.decryptCipher.remove();
+            throw e;
+        }
+    }
+
+    private Cipher getCipher(ThreadLocal<Cipher> cache, int mode) throws GeneralSecurityException {
+        Cipher cipher = cache.get();
+        if(cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, this.key);
+            cache.set(cipher);
+        }
+        return cipher;
+    }
+
+}
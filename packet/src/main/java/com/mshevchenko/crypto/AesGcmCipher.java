@@ -0,0 +1,78 @@
+package com.mshevchenko.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Every message is IV || ciphertext || tag. The IV is a random per-session
+ * prefix followed by a message counter, so it never repeats under one key;
+ * each direction of a session has its own key.
+ */
+public class AesGcmCipher implements PacketCipher {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<>();
+
+    private SecretKey encryptKey;
+    private SecretKey decryptKey;
+    private int ivPrefix;
+    private AtomicLong counter;
+
+    public AesGcmCipher(SecretKey encryptKey, SecretKey decryptKey) {
+        this.encryptKey = encryptKey;
+        this.decryptKey = decryptKey;
+        this.ivPrefix = new SecureRandom().nextInt();
+        this.counter = new AtomicLong();
+    }
+
+    @Override
+    public int getMaxEncryptedLength(int length) {
+        return IV_LENGTH + length + TAG_LENGTH;
+    }
+
+    @Override
+    public int encrypt(byte[] message, ByteBuffer destination) throws GeneralSecurityException {
+        byte[] iv = ByteBuffer.allocate(IV_LENGTH).putInt(this.ivPrefix).putLong(this.counter.getAndIncrement()).array();
+        Cipher cipher = getCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, this.encryptKey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        destination.put(iv);
+        return IV_LENGTH + cipher.doFinal(ByteBuffer.wrap(message), destination);
+    }
+
+    @Override
+    public byte[] decrypt(ByteBuffer encryptedMessage) throws GeneralSecurityException {
+        if(encryptedMessage.remaining() < IV_LENGTH + TAG_LENGTH) {
+            throw new GeneralSecurityException("message is too short");
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        encryptedMessage.get(iv);
+        Cipher cipher = getCipher();
+        cipher.init(Cipher.DECRYPT_MODE, this.decryptKey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        if(encryptedMessage.hasArray()) {
+            byte[] message = cipher.doFinal(encryptedMessage.array(),
+                    encryptedMessage.arrayOffset() + encryptedMessage.position(), encryptedMessage.remaining());
+            encryptedMessage.position(encryptedMessage.limit());
+            return message;
+        }
+        byte[] message = new byte[encryptedMessage.remaining() - TAG_LENGTH];
+        cipher.doFinal(encryptedMessage, ByteBuffer.wrap(message));
+        return message;
+    }
+
+    private static Cipher getCipher() throws GeneralSecurityException {
+        Cipher cipher = CIPHERS.get();
+        if(cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            CIPHERS.set(cipher);
+        }
+        return cipher;
+    }
+
+}
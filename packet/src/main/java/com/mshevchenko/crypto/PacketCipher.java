@@ -0,0 +1,18 @@
+package com.mshevchenko.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+public interface PacketCipher {
+
+    int getMaxEncryptedLength(int length);
+
+    int encrypt(byte[] message, ByteBuffer destination) throws GeneralSecurityException;
+
+    byte[] decrypt(ByteBuffer encryptedMessage) throws GeneralSecurityException;
+
+    default boolean isDeterministic() {
+        return false;
+    }
+
+}
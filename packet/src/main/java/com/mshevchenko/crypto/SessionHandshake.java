@@ -0,0 +1,58 @@
+package com.mshevchenko.crypto;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+public class SessionHandshake {
+
+    private static final String ALGORITHM = "X25519";
+    private static final byte[] CLIENT_LABEL = "client".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SERVER_LABEL = "server".getBytes(StandardCharsets.UTF_8);
+
+    private KeyPair keyPair;
+
+    public SessionHandshake() throws GeneralSecurityException {
+        this.keyPair = KeyPairGenerator.getInstance(ALGORITHM).generateKeyPair();
+    }
+
+    public String getPublicKey() {
+        return Base64.getEncoder().encodeToString(this.keyPair.getPublic().getEncoded());
+    }
+
+    public AesGcmCipher createClientCipher(String serverPublicKey) throws GeneralSecurityException {
+        byte[] secret = agree(serverPublicKey);
+        return new AesGcmCipher(deriveKey(secret, CLIENT_LABEL), deriveKey(secret, SERVER_LABEL));
+    }
+
+    public AesGcmCipher createServerCipher(String clientPublicKey) throws GeneralSecurityException {
+        byte[] secret = agree(clientPublicKey);
+        return new AesGcmCipher(deriveKey(secret, SERVER_LABEL), deriveKey(secret, CLIENT_LABEL));
+    }
+
+    private byte[] agree(String publicKey) throws GeneralSecurityException {
+        byte[] encoded;
+        try {
+            encoded = Base64.getDecoder().decode(publicKey);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidKeyException(e);
+        }
+        PublicKey key = KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
+        KeyAgreement agreement = KeyAgreement.getInstance(ALGORITHM);
+        agreement.init(this.keyPair.getPrivate());
+        agreement.doPhase(key, true);
+        return agreement.generateSecret();
+    }
+
+    private static SecretKey deriveKey(byte[] secret, byte[] label) throws GeneralSecurityException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(secret);
+        digest.update(label);
+        return new SecretKeySpec(digest.digest(), "AES");
+    }
+
+}
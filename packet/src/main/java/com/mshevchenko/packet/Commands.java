@@ -25,5 +25,58 @@ public abstract class Commands {
     public static final int INCREASE_PRODUCTS_QUANTITY = 20;
     public static final int DECREASE_PRODUCT_QUANTITY = 21;
     public static final int STOP = 22;
+    public static final int HANDSHAKE = 23;
+    public static final int SET_PAYLOAD_FORMAT = 24;
+    public static final int SET_COMPRESSION = 25;
+    public static final int GET_GROUPS_PAGE = 26;
+    public static final int GET_PRODUCTS_PAGE = 27;
+    public static final int GET_PRODUCTS_INNER_JOIN_GROUPS_PAGE = 28;
+    public static final int GET_PRODUCTS_SORTED = 29;
+    public static final int GET_PRODUCTS_INNER_JOIN_GROUPS_SORTED = 30;
+    public static final int GET_INVENTORY_TOTALS = 31;
+    public static final int INSERT_GROUPS = 32;
+    public static final int INSERT_PRODUCTS = 33;
+    public static final int ADJUST_PRODUCTS_QUANTITY = 34;
+    public static final int ORDER_PICK = 35;
+    public static final int GET_CHANGES_SINCE = 36;
+    public static final int SUBSCRIBE = 37;
+    public static final int UNSUBSCRIBE = 38;
+
+    public static boolean isRead(int command) {
+        switch (command) {
+            case GET_GROUPS:
+            case GET_PRODUCTS:
+            case GET_GROUPS_BY_FILTER:
+            case GET_PRODUCTS_BY_FILTER:
+            case GET_GROUP_BY_ID:
+            case GET_PRODUCT_BY_ID:
+            case GET_PRODUCTS_INNER_JOIN_GROUPS:
+            case GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER:
+            case GET_GROUPS_PAGE:
+            case GET_PRODUCTS_PAGE:
+            case GET_PRODUCTS_INNER_JOIN_GROUPS_PAGE:
+            case GET_PRODUCTS_SORTED:
+            case GET_PRODUCTS_INNER_JOIN_GROUPS_SORTED:
+            case GET_INVENTORY_TOTALS:
+            case GET_CHANGES_SINCE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static boolean isSession(int command) {
+        switch (command) {
+            case STOP:
+            case HANDSHAKE:
+            case SET_PAYLOAD_FORMAT:
+            case SET_COMPRESSION:
+            case SUBSCRIBE:
+            case UNSUBSCRIBE:
+                return true;
+            default:
+                return false;
+        }
+    }
 
 }
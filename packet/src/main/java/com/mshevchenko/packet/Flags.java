@@ -0,0 +1,11 @@
+package com.mshevchenko.packet;
+
+public abstract class Flags {
+
+    public final static int COMPRESSED = 0x01;
+    public final static int STREAM = 0x02;
+    public final static int END_OF_STREAM = 0x04;
+    public final static int VERSIONED = 0x08;
+    public final static int PUSH = 0x10;
+
+}
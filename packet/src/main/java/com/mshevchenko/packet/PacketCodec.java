@@ -0,0 +1,177 @@
+package com.mshevchenko.packet;
+
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.crc16.CRC16Creator;
+import com.mshevchenko.crypto.AesEcbCipher;
+import com.mshevchenko.crypto.PacketCipher;
+import com.mshevchenko.packet.exceptions.LostDataException;
+import com.mshevchenko.packet.exceptions.NotPacketException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+public class PacketCodec {
+
+    public static final int HEADER_LENGTH = PacketFrameDecoder.HEADER_LENGTH;
+    public static final int CRC_LENGTH = PacketFrameDecoder.CRC_LENGTH;
+    public static final int COMMAND_MASK = 0x00ffffff;
+
+    private volatile PacketCipher cipher;
+    private volatile PacketCompressor compressor;
+
+    public PacketCodec() {
+        this(AesEcbCipher.DEFAULT);
+    }
+
+    public PacketCodec(PacketCipher cipher) {
+        this.cipher = cipher;
+    }
+
+    public int getMaxEncodedLength(Packet packet) {
+        return HEADER_LENGTH + this.cipher.getMaxEncryptedLength(packet.getBody().length) + CRC_LENGTH;
+    }
+
+    public ByteBuffer encode(Packet packet) {
+        PacketCipher cipher = this.cipher;
+        SharedFrame shared = packet.getSharedFrame();
+        if(shared != null) {
+            return encode(cipher, packet, shared);
+        }
+        return encode(cipher, packet, compress(packet.getBody()));
+    }
+
+    public void encode(Packet packet, ByteBuffer destination) {
+        PacketCipher cipher = this.cipher;
+        SharedFrame shared = packet.getSharedFrame();
+        if(shared != null) {
+            destination.put(encode(cipher, packet, shared));
+            return;
+        }
+        encode(cipher, packet, compress(packet.getBody()), destination);
+    }
+
+    private ByteBuffer encode(PacketCipher cipher, Packet packet, SharedFrame shared) {
+        PacketCompressor compressor = this.compressor;
+        byte[] body = shared.getBody();
+        if(!cipher.isDeterministic()) {
+            byte[] message = compressor == null ? body : shared.messages.computeIfAbsent(compressor, c -> {
+                byte[] compressed = c.compress(body);
+                return compressed != null ? compressed : body;
+            });
+            return encode(cipher, packet, message != body ? message : null);
+        }
+        ByteBuffer frame = shared.frames.computeIfAbsent(Arrays.asList(cipher, compressor),
+                key -> encode(cipher, packet, compress(compressor, body)));
+        if(frame.getLong(1) == packet.getPacketNumber()) {
+            return frame.duplicate();
+        }
+        ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+        copy.put(frame.duplicate());
+        copy.flip();
+        copy.putLong(1, packet.getPacketNumber());
+        copy.putShort(copy.limit() - CRC_LENGTH, CRC16Creator.createCRC16(copy, 0, copy.limit() - CRC_LENGTH));
+        return copy;
+    }
+
+    private ByteBuffer encode(PacketCipher cipher, Packet packet, byte[] compressed) {
+        byte[] body = compressed != null ? compressed : packet.getBody();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + cipher.getMaxEncryptedLength(body.length) + CRC_LENGTH);
+        encode(cipher, packet, compressed, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] compress(byte[] body) {
+        return compress(this.compressor, body);
+    }
+
+    private static byte[] compress(PacketCompressor compressor, byte[] body) {
+        return compressor == null ? null : compressor.compress(body);
+    }
+
+    private void encode(PacketCipher cipher, Packet packet, byte[] compressed, ByteBuffer destination) {
+        ByteOrder order = destination.order();
+        destination.order(ByteOrder.BIG_ENDIAN);
+        int start = destination.position();
+        int flags = compressed != null ? packet.getFlags() | Flags.COMPRESSED : packet.getFlags() & ~Flags.COMPRESSED;
+        destination.put(Packet.MAGIC);
+        destination.putLong(packet.getPacketNumber());
+        destination.putInt(packet.getStatus());
+        destination.putInt(packet.getCommand() & COMMAND_MASK | flags << 24);
+        destination.position(start + HEADER_LENGTH);
+        int messageLength;
+        try {
+            messageLength = cipher.encrypt(compressed != null ? compressed : packet.getBody(), destination);
+        } catch (GeneralSecurityException e) {
+            destination.position(start);
+            destination.order(order);
+            throw new IllegalStateException(e);
+        }
+        destination.putInt(start + HEADER_LENGTH - 4, messageLength);
+        destination.putShort(CRC16Creator.createCRC16(destination, start, HEADER_LENGTH + messageLength));
+        destination.order(order);
+    }
+
+    public Packet decode(ByteBuffer frame) throws NotPacketException, LostDataException {
+        int start = frame.position();
+        int length = frame.remaining();
+        if(length < 1 || frame.get(start) != Packet.MAGIC) {
+            throw new NotPacketException();
+        }
+        if(length < HEADER_LENGTH + CRC_LENGTH) {
+            throw new LostDataException();
+        }
+        ByteOrder order = frame.order();
+        frame.order(ByteOrder.BIG_ENDIAN);
+        try {
+            short crc16 = frame.getShort(start + length - CRC_LENGTH);
+            if(crc16 != CRC16Creator.createCRC16(frame, start, length - CRC_LENGTH)) {
+                throw new LostDataException();
+            }
+            long packetNumber = frame.getLong(start + 1);
+            int status = frame.getInt(start + 9);
+            int command = frame.getInt(start + 13);
+            int flags = command >>> 24;
+            int messageLength = frame.getInt(start + 17);
+            if(messageLength < 0 || messageLength != length - HEADER_LENGTH - CRC_LENGTH) {
+                throw new LostDataException();
+            }
+            byte[] body = this.cipher.decrypt(frame.slice(start + HEADER_LENGTH, messageLength));
+            if((flags & Flags.COMPRESSED) != 0) {
+                PacketCompressor compressor = this.compressor;
+                if(compressor == null) {
+                    throw new LostDataException();
+                }
+                body = compressor.decompress(body);
+            }
+            frame.position(start + length);
+            Packet packet = new Packet(packetNumber, status, command & COMMAND_MASK, body);
+            packet.setFlags(flags & ~Flags.COMPRESSED);
+            return packet;
+        } catch (GeneralSecurityException | DataFormatException e) {
+            throw new LostDataException();
+        } finally {
+            frame.order(order);
+        }
+    }
+
+    public PacketCipher getCipher() {
+        return cipher;
+    }
+
+    public void setCipher(PacketCipher cipher) {
+        this.cipher = cipher;
+    }
+
+    public PacketCompressor getCompressor() {
+        return compressor;
+    }
+
+    public void setCompressor(PacketCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+}
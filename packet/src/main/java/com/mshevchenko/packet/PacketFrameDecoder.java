@@ -0,0 +1,126 @@
+package com.mshevchenko.packet;
+
+import com.mshevchenko.packet.exceptions.NotPacketException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public class PacketFrameDecoder {
+
+    public static final int HEADER_LENGTH = 21;
+    public static final int CRC_LENGTH = 2;
+    private static final int MESSAGE_LENGTH_OFFSET = 17;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int RETAINED_CAPACITY = 1024 * 1024;
+    private static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private byte[] buffer;
+    private int position;
+    private int frameLength;
+    private boolean frameReady;
+    private int maxFrameLength;
+
+    public PacketFrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public PacketFrameDecoder(int maxFrameLength) {
+        this.buffer = new byte[INITIAL_CAPACITY];
+        this.maxFrameLength = maxFrameLength;
+        reset();
+    }
+
+    public boolean decode(ByteBuffer source) throws NotPacketException {
+        startNextFrame();
+        while(source.hasRemaining()) {
+            int length = Math.min(required() - this.position, source.remaining());
+            source.get(this.buffer, this.position, length);
+            this.position += length;
+            if(advance()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean read(InputStream in) throws IOException, NotPacketException {
+        startNextFrame();
+        while(true) {
+            int length = in.read(this.buffer, this.position, required() - this.position);
+            if(length < 0) {
+                if(this.position == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+            this.position += length;
+            if(advance()) {
+                return true;
+            }
+        }
+    }
+
+    private int required() {
+        return this.frameLength < 0 ? HEADER_LENGTH : this.frameLength;
+    }
+
+    private boolean advance() throws NotPacketException {
+        if(this.position > 0 && this.buffer[0] != Packet.MAGIC) {
+            throw new NotPacketException();
+        }
+        if(this.frameLength < 0) {
+            if(this.position < HEADER_LENGTH) {
+                return false;
+            }
+            int messageLength = ((this.buffer[MESSAGE_LENGTH_OFFSET] & 0xff) << 24)
+                    | ((this.buffer[MESSAGE_LENGTH_OFFSET + 1] & 0xff) << 16)
+                    | ((this.buffer[MESSAGE_LENGTH_OFFSET + 2] & 0xff) << 8)
+                    | (this.buffer[MESSAGE_LENGTH_OFFSET + 3] & 0xff);
+            if(messageLength < 0 || messageLength > this.maxFrameLength - HEADER_LENGTH - CRC_LENGTH) {
+                throw new NotPacketException();
+            }
+            this.frameLength = HEADER_LENGTH + messageLength + CRC_LENGTH;
+            ensureCapacity(this.frameLength);
+        }
+        this.frameReady = this.position == this.frameLength;
+        return this.frameReady;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(this.buffer.length < capacity) {
+            byte[] buffer = new byte[Math.max(capacity, this.buffer.length * 2)];
+            System.arraycopy(this.buffer, 0, buffer, 0, this.position);
+            this.buffer = buffer;
+        }
+    }
+
+    private void startNextFrame() {
+        if(this.frameReady) {
+            reset();
+        }
+    }
+
+    public void reset() {
+        if(this.buffer.length > RETAINED_CAPACITY) {
+            this.buffer = new byte[INITIAL_CAPACITY];
+        }
+        this.position = 0;
+        this.frameLength = -1;
+        this.frameReady = false;
+    }
+
+    public boolean isFrameReady() {
+        return frameReady;
+    }
+
+    public byte[] getFrame() {
+        return buffer;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.mshevchenko.packet;
+
+import com.mshevchenko.compression.PacketCompressor;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SharedFrame {
+
+    private final int status;
+    private final int command;
+    private final int flags;
+    private final byte[] body;
+    final Map<List<Object>, ByteBuffer> frames = new ConcurrentHashMap<>();
+    final Map<PacketCompressor, byte[]> messages = new ConcurrentHashMap<>();
+
+    public SharedFrame(int status, int command, int flags, byte[] body) {
+        this.status = status;
+        this.command = command;
+        this.flags = flags;
+        this.body = body;
+    }
+
+    public Packet packet(long packetNumber) {
+        Packet packet = new Packet(packetNumber, this.status, this.command, this.body);
+        packet.setFlags(this.flags);
+        packet.setSharedFrame(this);
+        return packet;
+    }
+
+    public byte[] getBody() {
+        return this.body;
+    }
+
+    public int getFrames() {
+        return this.frames.size();
+    }
+
+}
@@ -7,5 +7,7 @@ public abstract class Status {
     public final static int FAILURE = 3;
     public final static int UNKNOWN_OPERATION = 3;
     public final static int ERROR = 4;
+    public final static int CONFLICT = 5;
+    public final static int NOT_MODIFIED = 6;
 
 }
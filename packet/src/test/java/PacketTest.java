@@ -1,6 +1,13 @@
+import com.mshevchenko.compression.PacketCompressor;
 import com.mshevchenko.crc16.CRC16Creator;
+import com.mshevchenko.crypto.AesGcmCipher;
+import com.mshevchenko.crypto.SessionHandshake;
 import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Flags;
 import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.PacketFrameDecoder;
+import com.mshevchenko.packet.SharedFrame;
 import com.mshevchenko.packet.Status;
 import com.mshevchenko.packet.exceptions.LostDataException;
 import com.mshevchenko.packet.exceptions.NotPacketException;
@@ -11,8 +18,14 @@ import org.junit.jupiter.api.Test;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
 
 public class PacketTest {
 
@@ -92,4 +105,236 @@ public class PacketTest {
         Assertions.assertEquals(testPacket, this.packet);
     }
 
+    @Test
+    public void frameDecoderByteByByteTest() throws NotPacketException, LostDataException {
+        byte[] bytes = Packet.encryptPacket(this.packet);
+        PacketFrameDecoder decoder = new PacketFrameDecoder();
+        for(int i = 0; i < bytes.length - 1; i++) {
+            Assertions.assertFalse(decoder.decode(ByteBuffer.wrap(bytes, i, 1)));
+        }
+        Assertions.assertTrue(decoder.decode(ByteBuffer.wrap(bytes, bytes.length - 1, 1)));
+        Assertions.assertEquals(bytes.length, decoder.getFrameLength());
+        Assertions.assertEquals(this.packet, Packet.decryptPacket(decoder.getFrame(), 0, decoder.getFrameLength()));
+    }
+
+    @Test
+    public void frameDecoderSeveralFramesTest() throws NotPacketException, LostDataException {
+        Packet second = new Packet(2, Status.CLIENT, Commands.GET_GROUPS, "x".repeat(5000));
+        byte[] first = Packet.encryptPacket(this.packet);
+        byte[] next = Packet.encryptPacket(second);
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + next.length);
+        buffer.put(first).put(next).flip();
+        PacketFrameDecoder decoder = new PacketFrameDecoder();
+        Assertions.assertTrue(decoder.decode(buffer));
+        Assertions.assertEquals(this.packet, Packet.decryptPacket(decoder.getFrame(), 0, decoder.getFrameLength()));
+        Assertions.assertTrue(decoder.decode(buffer));
+        Assertions.assertEquals(second, Packet.decryptPacket(decoder.getFrame(), 0, decoder.getFrameLength()));
+        Assertions.assertFalse(buffer.hasRemaining());
+        Assertions.assertFalse(decoder.decode(buffer));
+    }
+
+    @Test
+    public void frameDecoderShortReadsTest() throws IOException, NotPacketException, LostDataException {
+        byte[] bytes = Packet.encryptPacket(this.packet);
+        InputStream in = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+        PacketFrameDecoder decoder = new PacketFrameDecoder();
+        Assertions.assertTrue(decoder.read(in));
+        Assertions.assertEquals(this.packet, Packet.decryptPacket(decoder.getFrame(), 0, decoder.getFrameLength()));
+        Assertions.assertFalse(decoder.read(in));
+    }
+
+    @Test
+    public void frameDecoderNotPacketTest() {
+        byte[] bytes = Packet.encryptPacket(this.packet);
+        bytes[0] = 0;
+        Assertions.assertThrows(NotPacketException.class, () -> {
+            new PacketFrameDecoder().decode(ByteBuffer.wrap(bytes));
+        });
+    }
+
+    @Test
+    public void codecDirectBufferTest() throws NotPacketException, LostDataException {
+        PacketCodec codec = new PacketCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.getMaxEncodedLength(this.packet) + 10);
+        buffer.position(10);
+        codec.encode(this.packet, buffer);
+        buffer.flip();
+        buffer.position(10);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        Assertions.assertArrayEquals(Packet.encryptPacket(this.packet), bytes);
+        Assertions.assertEquals(this.packet, codec.decode(buffer));
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void codecSliceTest() throws NotPacketException, LostDataException {
+        byte[] bytes = Packet.encryptPacket(this.packet);
+        byte[] framed = new byte[bytes.length + 7];
+        System.arraycopy(bytes, 0, framed, 3, bytes.length);
+        Packet testPacket = new PacketCodec().decode(ByteBuffer.wrap(framed, 3, bytes.length).slice());
+        Assertions.assertEquals(this.packet, testPacket);
+        Assertions.assertEquals(this.packet.getMessage(), testPacket.getMessage());
+    }
+
+    @Test
+    public void sessionCipherTest() throws GeneralSecurityException, NotPacketException, LostDataException {
+        SessionHandshake client = new SessionHandshake();
+        SessionHandshake server = new SessionHandshake();
+        PacketCodec clientCodec = new PacketCodec(client.createClientCipher(server.getPublicKey()));
+        PacketCodec serverCodec = new PacketCodec(server.createServerCipher(client.getPublicKey()));
+        ByteBuffer first = clientCodec.encode(this.packet);
+        ByteBuffer second = clientCodec.encode(this.packet);
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertEquals(this.packet, serverCodec.decode(first));
+        Assertions.assertEquals(this.packet, serverCodec.decode(second));
+        Assertions.assertEquals(this.packet, clientCodec.decode(serverCodec.encode(this.packet)));
+        Assertions.assertThrows(LostDataException.class, () -> {
+            clientCodec.decode(clientCodec.encode(this.packet));
+        });
+    }
+
+    @Test
+    public void sessionCipherTamperedTest() throws GeneralSecurityException {
+        SessionHandshake client = new SessionHandshake();
+        SessionHandshake server = new SessionHandshake();
+        PacketCodec clientCodec = new PacketCodec(client.createClientCipher(server.getPublicKey()));
+        PacketCodec serverCodec = new PacketCodec(server.createServerCipher(client.getPublicKey()));
+        ByteBuffer buffer = clientCodec.encode(this.packet);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        bytes[PacketCodec.HEADER_LENGTH + AesGcmCipher.IV_LENGTH] ^= 1;
+        short crc16 = CRC16Creator.createCRC16(bytes, 0, bytes.length - 2);
+        bytes[bytes.length - 2] = (byte) (crc16 >> 8);
+        bytes[bytes.length - 1] = (byte) crc16;
+        Assertions.assertThrows(LostDataException.class, () -> {
+            serverCodec.decode(ByteBuffer.wrap(bytes));
+        });
+    }
+
+    @Test
+    public void crc16SlicingTest() {
+        Random random = new Random(16);
+        byte[] bytes = new byte[4099];
+        random.nextBytes(bytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        for(int offset = 0; offset < 9; offset++) {
+            for(int length : new int[] {0, 1, 7, 8, 9, 15, 16, 17, 100, 4090}) {
+                short expected = CRC16Creator.createCRC16Bytewise(bytes, offset, length);
+                Assertions.assertEquals(expected, CRC16Creator.createCRC16(bytes, offset, length));
+                Assertions.assertEquals(expected, CRC16Creator.createCRC16(ByteBuffer.wrap(bytes), offset, length));
+                Assertions.assertEquals(expected, CRC16Creator.createCRC16(direct, offset, length));
+            }
+        }
+        Assertions.assertEquals(CRC16Creator.createCRC16Bytewise(bytes, 0, bytes.length), CRC16Creator.createCRC16(direct.clear()));
+    }
+
+    @Test
+    public void compressedCodecTest() throws NotPacketException, LostDataException {
+        PacketCompressor compressor = new PacketCompressor(64, 6);
+        PacketCodec codec = new PacketCodec();
+        codec.setCompressor(compressor);
+        Packet large = new Packet(7, Status.SUCCESS, Commands.GET_PRODUCTS, "{\"name\":\"product\"},".repeat(1000));
+        ByteBuffer frame = codec.encode(large);
+        Assertions.assertTrue(frame.remaining() < large.getBody().length / 10);
+        Assertions.assertEquals(Flags.COMPRESSED, frame.get(13) & Flags.COMPRESSED);
+        PacketCodec decoder = new PacketCodec();
+        decoder.setCompressor(compressor);
+        Assertions.assertEquals(large, decoder.decode(frame));
+        Assertions.assertEquals(1, compressor.getCompressedPackets());
+        Assertions.assertTrue(compressor.getCompressionRatio() > 10);
+        ByteBuffer small = codec.encode(this.packet);
+        Assertions.assertEquals(0, small.get(13));
+        Assertions.assertEquals(this.packet, codec.decode(small));
+    }
+
+    @Test
+    public void compressedCodecUnnegotiatedTest() {
+        PacketCodec codec = new PacketCodec();
+        codec.setCompressor(new PacketCompressor(64, 6));
+        ByteBuffer frame = codec.encode(new Packet(7, Status.CLIENT, Commands.INSERT_PRODUCT, "{\"name\":\"product\"},".repeat(100)));
+        Assertions.assertEquals(Flags.COMPRESSED, frame.get(13) & Flags.COMPRESSED);
+        Assertions.assertThrows(LostDataException.class, () -> new PacketCodec().decode(frame));
+    }
+
+    @Test
+    public void decompressLengthTest() throws DataFormatException {
+        PacketCompressor compressor = new PacketCompressor(0, 6, 1024);
+        byte[] compressed = compressor.compress(new byte[1024]);
+        Assertions.assertArrayEquals(new byte[1024], compressor.decompress(compressed));
+        byte[] oversized = compressed.clone();
+        oversized[2] = 0x04;
+        oversized[3] = 0x01;
+        Assertions.assertThrows(DataFormatException.class, () -> compressor.decompress(oversized));
+        byte[] claimed = new PacketCompressor(0, 6).compress(new byte[2048]);
+        claimed[0] = 0x03;
+        claimed[1] = (byte) 0xff;
+        claimed[2] = (byte) 0xff;
+        claimed[3] = (byte) 0xff;
+        Assertions.assertThrows(DataFormatException.class, () -> PacketCompressor.DEFAULT.decompress(claimed));
+        Assertions.assertThrows(DataFormatException.class, () -> compressor.decompress(claimed));
+        byte[] shortened = new PacketCompressor(0, 6).compress(new byte[2048]);
+        shortened[2] = 0x07;
+        shortened[3] = (byte) 0xff;
+        Assertions.assertThrows(DataFormatException.class, () -> PacketCompressor.DEFAULT.decompress(shortened));
+    }
+
+    @Test
+    public void compressedCodecIncompressibleTest() throws NotPacketException, LostDataException {
+        PacketCompressor compressor = new PacketCompressor(0, 1);
+        PacketCodec codec = new PacketCodec();
+        codec.setCompressor(compressor);
+        byte[] random = new byte[4096];
+        new Random(3).nextBytes(random);
+        Packet packet = new Packet(8, Status.SUCCESS, Commands.GET_PRODUCTS, random);
+        packet.setFlags(0x40);
+        ByteBuffer frame = codec.encode(packet);
+        Assertions.assertEquals(0x40, frame.get(13));
+        Assertions.assertEquals(packet, codec.decode(frame));
+        Assertions.assertEquals(1, compressor.getSkippedPackets());
+    }
+
+    @Test
+    public void sharedFrameCodecTest() throws GeneralSecurityException, NotPacketException, LostDataException {
+        PacketCompressor compressor = new PacketCompressor(64, 6);
+        PacketCodec firstCodec = new PacketCodec();
+        PacketCodec secondCodec = new PacketCodec();
+        firstCodec.setCompressor(compressor);
+        secondCodec.setCompressor(compressor);
+        byte[] body = "{\"name\":\"group\"},".repeat(100).getBytes();
+        SharedFrame frame = new SharedFrame(Status.SUCCESS, Commands.GET_GROUPS, Flags.VERSIONED, body);
+        Packet first = frame.packet(1);
+        Packet second = frame.packet(2);
+        ByteBuffer firstFrame = firstCodec.encode(first);
+        ByteBuffer secondFrame = secondCodec.encode(second);
+        ByteBuffer repeatedFrame = firstCodec.encode(frame.packet(1));
+        Assertions.assertEquals(1, compressor.getCompressedPackets());
+        Assertions.assertEquals(1, frame.getFrames());
+        Assertions.assertEquals(firstFrame.slice(PacketCodec.HEADER_LENGTH, firstFrame.remaining() - PacketCodec.HEADER_LENGTH - PacketCodec.CRC_LENGTH),
+                secondFrame.slice(PacketCodec.HEADER_LENGTH, secondFrame.remaining() - PacketCodec.HEADER_LENGTH - PacketCodec.CRC_LENGTH));
+        Assertions.assertEquals(first, firstCodec.decode(firstFrame));
+        Assertions.assertEquals(second, secondCodec.decode(secondFrame));
+        Assertions.assertEquals(first, firstCodec.decode(repeatedFrame));
+        SessionHandshake client = new SessionHandshake();
+        SessionHandshake server = new SessionHandshake();
+        PacketCodec serverCodec = new PacketCodec(server.createServerCipher(client.getPublicKey()));
+        PacketCodec clientCodec = new PacketCodec(client.createClientCipher(server.getPublicKey()));
+        serverCodec.setCompressor(compressor);
+        clientCodec.setCompressor(compressor);
+        ByteBuffer sessionFirst = serverCodec.encode(first);
+        ByteBuffer sessionSecond = serverCodec.encode(second);
+        Assertions.assertEquals(2, compressor.getCompressedPackets());
+        Assertions.assertEquals(1, frame.getFrames());
+        Assertions.assertNotEquals(sessionFirst.slice(PacketCodec.HEADER_LENGTH, AesGcmCipher.IV_LENGTH),
+                sessionSecond.slice(PacketCodec.HEADER_LENGTH, AesGcmCipher.IV_LENGTH));
+        Assertions.assertEquals(first, clientCodec.decode(sessionFirst));
+        Assertions.assertEquals(second, clientCodec.decode(sessionSecond));
+    }
+
 }
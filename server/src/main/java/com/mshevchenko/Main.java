@@ -4,8 +4,10 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mshevchenko.server.StockSelectorServer;
 import com.mshevchenko.server.StockServer;
-import com.mshevchenko.stock.Stock;
+import com.mshevchenko.server_interfaces.Server;
+import com.mshevchenko.stock.CachingStock;
 import com.mshevchenko.stock_objects.Pair;
 
 import java.io.BufferedReader;
@@ -17,8 +19,18 @@ import java.util.Map;
 public class Main {
 
     public static void main(String[] args) throws SQLException, ClassNotFoundException, IOException {
-        Stock stock = new Stock("database/StockDataBase.db");
-        StockServer server = new StockServer(4545, stock);
+        CachingStock stock = new CachingStock("database/StockDataBase.db");
+        String mode = args.length > 0 ? args[0] : "pool";
+        Server server;
+        if(mode.equals("nio")) {
+            server = new StockSelectorServer(4545, stock);
+        }
+        else if(mode.equals("virtual")) {
+            server = new StockServer(4545, stock, StockServer.ExecutionMode.THREAD_PER_CONNECTION);
+        }
+        else {
+            server = new StockServer(4545, stock);
+        }
         Thread serverThread = new Thread(server);
         serverThread.start();
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
@@ -28,6 +40,14 @@ public class Main {
             if(value.equals("connections")) {
                 System.out.println(server.getConnections().size());
             }
+            else if(value.equals("stats")) {
+                System.out.println(server.getCompressor());
+                System.out.println(stock.getStatementCacheStats());
+                System.out.println(stock.getCacheStats());
+                System.out.println(server.getResponseCache());
+                System.out.println(stock.getChangeLog());
+                System.out.println(server.getChangePublisher());
+            }
         } while(!value.equals("stop"));
         server.close();
     }
@@ -0,0 +1,204 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Flags;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.SharedFrame;
+import com.mshevchenko.packet.Status;
+import com.mshevchenko.server_interfaces.Connection;
+import com.mshevchenko.server_interfaces.Sender;
+import com.mshevchenko.stock.ChangeLog;
+import com.mshevchenko.stock_objects.ChangeSet;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schemas;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class ChangePublisher {
+
+    public static final int MAX_PENDING = 64;
+    public static final long MAX_PENDING_BYTES = 1024 * 1024;
+
+    private final ChangeLog changeLog;
+    private final int maxPending;
+    private final long maxPendingBytes;
+    private final Runnable listener = this::changed;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Map<Connection, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private ExecutorService publisher;
+    private ExecutorService deliverer;
+    private long revision;
+    private LongAdder published = new LongAdder();
+    private LongAdder delivered = new LongAdder();
+    private LongAdder coalesced = new LongAdder();
+
+    public ChangePublisher(ChangeLog changeLog) {
+        this(changeLog, MAX_PENDING, MAX_PENDING_BYTES);
+    }
+
+    public ChangePublisher(ChangeLog changeLog, int maxPending, long maxPendingBytes) {
+        this.changeLog = changeLog;
+        this.maxPending = maxPending;
+        this.maxPendingBytes = maxPendingBytes;
+        this.revision = changeLog.getRevision();
+        this.publisher = Executors.newSingleThreadExecutor(daemon("stock-change-publisher"));
+        this.deliverer = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemon("stock-change-deliverer"));
+        changeLog.addListener(this.listener);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public long subscribe(Connection connection, Supplier<PayloadFormat> format) {
+        this.subscriptions.put(connection, new Subscription(connection.getCodec(), connection.getSender(), format));
+        return this.changeLog.getRevision();
+    }
+
+    public boolean unsubscribe(Connection connection) {
+        return this.subscriptions.remove(connection) != null;
+    }
+
+    private void changed() {
+        if(this.scheduled.compareAndSet(false, true)) {
+            try {
+                this.publisher.execute(this::publish);
+            } catch (RejectedExecutionException e) {
+                this.scheduled.set(false);
+            }
+        }
+    }
+
+    private void publish() {
+        this.scheduled.set(false);
+        ChangeSet changes = this.changeLog.getChangesSince(this.revision);
+        if(changes.getRevision() == this.revision) {
+            return;
+        }
+        this.revision = changes.getRevision();
+        this.published.increment();
+        Map<PayloadFormat, SharedFrame> notifications = new HashMap<>();
+        Map<PayloadFormat, SharedFrame> resyncs = new HashMap<>();
+        for(Subscription subscription : this.subscriptions.values()) {
+            PayloadFormat format = subscription.format.get();
+            SharedFrame notification = notifications.computeIfAbsent(format, f -> encode(f, changes));
+            if(notification != null) {
+                subscription.offer(notification, () -> resyncs.computeIfAbsent(format,
+                        f -> encode(f, new ChangeSet(changes.getRevision(), true, Collections.emptyList()))));
+            }
+        }
+    }
+
+    private static SharedFrame encode(PayloadFormat format, ChangeSet changes) {
+        try {
+            return new SharedFrame(Status.SUCCESS, Commands.SUBSCRIBE, Flags.PUSH, format.write(Schemas.CHANGE_SET, changes));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void close() {
+        this.changeLog.removeListener(this.listener);
+        this.subscriptions.clear();
+        this.publisher.shutdownNow();
+        this.deliverer.shutdownNow();
+    }
+
+    public int getSubscriptions() {
+        return this.subscriptions.size();
+    }
+
+    public long getPublished() {
+        return this.published.sum();
+    }
+
+    public long getDelivered() {
+        return this.delivered.sum();
+    }
+
+    public long getCoalesced() {
+        return this.coalesced.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("subscriptions size=%d revision=%d published=%d delivered=%d coalesced=%d",
+                getSubscriptions(), this.changeLog.getRevision(), getPublished(), getDelivered(), getCoalesced());
+    }
+
+    private class Subscription {
+
+        private final PacketCodec codec;
+        private final Sender sender;
+        private final Supplier<PayloadFormat> format;
+        private final Queue<SharedFrame> pending = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscription(PacketCodec codec, Sender sender, Supplier<PayloadFormat> format) {
+            this.codec = codec;
+            this.sender = sender;
+            this.format = format;
+        }
+
+        private void offer(SharedFrame notification, Supplier<SharedFrame> resync) {
+            synchronized(this.pending) {
+                if(this.pending.size() >= ChangePublisher.this.maxPending) {
+                    this.pending.clear();
+                    this.pending.add(resync.get());
+                    ChangePublisher.this.coalesced.increment();
+                }
+                else {
+                    this.pending.add(notification);
+                }
+            }
+            if(this.draining.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                ChangePublisher.this.deliverer.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                this.draining.set(false);
+            }
+        }
+
+        private void drain() {
+            while(true) {
+                if(this.sender.resumeWhenDrained(ChangePublisher.this.maxPendingBytes, this::schedule)) {
+                    return;
+                }
+                SharedFrame notification;
+                synchronized(this.pending) {
+                    notification = this.pending.poll();
+                    if(notification == null) {
+                        this.draining.set(false);
+                        return;
+                    }
+                }
+                this.sender.send(this.codec.encode(notification.packet(0)));
+                ChangePublisher.this.delivered.increment();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.packet.SharedFrame;
+import com.mshevchenko.stock.ChangeLog;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ResponseCache {
+
+    private final Map<PayloadFormat, Map<Integer, Entry>> entries = new ConcurrentHashMap<>();
+    private final ChangeLog changeLog;
+    private final Runnable listener = this::invalidate;
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+
+    public ResponseCache(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+        changeLog.addListener(this.listener);
+    }
+
+    public long getVersion() {
+        return this.changeLog.getRevision();
+    }
+
+    public SharedFrame get(int command, PayloadFormat format) {
+        Entry entry = this.entries.computeIfAbsent(format, f -> new ConcurrentHashMap<>()).get(command);
+        if(entry != null && entry.version == getVersion()) {
+            this.hits.increment();
+            return entry.frame;
+        }
+        this.misses.increment();
+        return null;
+    }
+
+    public void put(int command, PayloadFormat format, long version, SharedFrame frame) {
+        if(version != getVersion()) {
+            return;
+        }
+        this.entries.computeIfAbsent(format, f -> new ConcurrentHashMap<>()).put(command, new Entry(version, frame));
+    }
+
+    public void invalidate() {
+        this.invalidations.increment();
+        for(Map<Integer, Entry> formatEntries : this.entries.values()) {
+            formatEntries.clear();
+        }
+    }
+
+    public void close() {
+        this.changeLog.removeListener(this.listener);
+        for(Map<Integer, Entry> formatEntries : this.entries.values()) {
+            formatEntries.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for(Map<Integer, Entry> formatEntries : this.entries.values()) {
+            size += formatEntries.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("responses size=%d version=%d hits=%d misses=%d invalidations=%d",
+                size(), getVersion(), getHits(), getMisses(), getInvalidations());
+    }
+
+    private static class Entry {
+
+        private final long version;
+        private final SharedFrame frame;
+
+        private Entry(long version, SharedFrame frame) {
+            this.version = version;
+            this.frame = frame;
+        }
+
+    }
+
+}
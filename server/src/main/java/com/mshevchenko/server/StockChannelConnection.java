@@ -0,0 +1,152 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.PacketFrameDecoder;
+import com.mshevchenko.packet.exceptions.NotPacketException;
+import com.mshevchenko.server_interfaces.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+
+public class StockChannelConnection implements Connection {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private Server server;
+    private StockEventLoop eventLoop;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer readBuffer;
+    private PacketFrameDecoder frameDecoder;
+    private PacketCodec codec;
+    private Decryptor decryptor;
+    private StockScheduler scheduler;
+    private Encryptor encryptor;
+    private StockChannelSender sender;
+
+    public StockChannelConnection(Server server, StockEventLoop eventLoop, SocketChannel channel) {
+        this.server = server;
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.frameDecoder = new PacketFrameDecoder();
+        this.codec = new PacketCodec();
+        this.sender = new StockChannelSender(this);
+        this.encryptor = new StockEncryptor(this, this.sender);
+        this.decryptor = new StockDecryptor(this, new StockProcessor(this, this.encryptor, this.server.getStock(),
+                this.server.getDatabaseExecutor(), this.server.getCompressor(), this.server.getResponseCache(),
+                this.server.getChangePublisher()));
+        this.scheduler = new StockScheduler(this.decryptor, this.server.getWorkerExecutor(), StockScheduler.MAX_IN_FLIGHT,
+                () -> this.eventLoop.execute(this::resume));
+    }
+
+    public void read() {
+        try {
+            int read = this.channel.read(this.readBuffer);
+            if(read < 0) {
+                close();
+                return;
+            }
+            decode();
+        } catch (IOException | NotPacketException e) {
+            close();
+        }
+    }
+
+    private void resume() {
+        if(this.key == null || !this.key.isValid()) {
+            return;
+        }
+        try {
+            decode();
+        } catch (NotPacketException e) {
+            close();
+        }
+    }
+
+    private void decode() throws NotPacketException {
+        this.readBuffer.flip();
+        try {
+            while(this.channel.isOpen() && this.scheduler.isReady() && this.frameDecoder.decode(this.readBuffer)) {
+                this.scheduler.decrypt(this.frameDecoder.getFrame(), 0, this.frameDecoder.getFrameLength());
+            }
+        } finally {
+            this.readBuffer.compact();
+        }
+        if(this.key.isValid()) {
+            if(this.scheduler.isReady()) {
+                this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ);
+            }
+            else {
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    public void requestFlush() {
+        if(this.eventLoop.inEventLoop()) {
+            flush();
+        }
+        else {
+            this.eventLoop.execute(this::flush);
+        }
+    }
+
+    public void flush() {
+        if(this.key == null || !this.key.isValid()) {
+            return;
+        }
+        Queue<ByteBuffer> queue = this.sender.getQueue();
+        try {
+            ByteBuffer buffer;
+            while((buffer = queue.peek()) != null) {
+                this.sender.sent(this.channel.write(buffer));
+                if(buffer.hasRemaining()) {
+                    this.key.interestOps(this.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                queue.poll();
+            }
+            this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.removeConnection(this);
+        this.sender.close();
+        if(this.key != null) {
+            this.key.cancel();
+        }
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            this.key = null;
+        }
+    }
+
+    public void setKey(SelectionKey key) {
+        this.key = key;
+        requestFlush();
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public PacketCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public Sender getSender() {
+        return sender;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.server_interfaces.Sender;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class StockChannelSender implements Sender {
+
+    private StockChannelConnection connection;
+    private Queue<ByteBuffer> queue;
+    private long pendingBytes;
+    private long resumeLimit;
+    private Runnable resume;
+    private boolean closed;
+
+    public StockChannelSender(StockChannelConnection connection) {
+        this.connection = connection;
+        this.queue = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public void send(ByteBuffer packet) {
+        synchronized(this) {
+            this.pendingBytes += packet.remaining();
+        }
+        this.queue.add(packet);
+        this.connection.requestFlush();
+    }
+
+    public void sent(int bytes) {
+        Runnable resume = null;
+        synchronized(this) {
+            this.pendingBytes -= bytes;
+            if(this.resume != null && this.pendingBytes <= this.resumeLimit) {
+                resume = this.resume;
+                this.resume = null;
+            }
+        }
+        if(resume != null) {
+            resume.run();
+        }
+    }
+
+    @Override
+    public synchronized long getPendingBytes() {
+        return this.pendingBytes;
+    }
+
+    @Override
+    public synchronized boolean resumeWhenDrained(long limit, Runnable resume) {
+        if(this.closed) {
+            return true;
+        }
+        if(this.pendingBytes <= limit) {
+            return false;
+        }
+        this.resumeLimit = limit;
+        this.resume = resume;
+        return true;
+    }
+
+    public synchronized void close() {
+        this.closed = true;
+        this.resume = null;
+        this.queue.clear();
+    }
+
+    public Queue<ByteBuffer> getQueue() {
+        return queue;
+    }
+
+}
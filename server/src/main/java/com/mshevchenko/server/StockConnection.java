@@ -1,5 +1,6 @@
 package com.mshevchenko.server;
 
+import com.mshevchenko.packet.PacketCodec;
 import com.mshevchenko.server_interfaces.*;
 import com.mshevchenko.stock.Stock;
 
@@ -8,12 +9,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 
-public class StockConnection implements Runnable {
+public class StockConnection implements Runnable, Connection {
 
     private StockServer server;
     private Receiver receiver;
+    private PacketCodec codec;
     private Decryptor decryptor;
-    private Processor processor;
+    private StockScheduler scheduler;
     private Encryptor encryptor;
     private Sender sender;
     private InputStream in;
@@ -23,14 +25,17 @@ public class StockConnection implements Runnable {
     public StockConnection(StockServer server, Socket socket) {
         this.server = server;
         this.socket = socket;
+        this.codec = new PacketCodec();
         try {
             this.in = this.socket.getInputStream();
             this.out = this.socket.getOutputStream();
             this.sender = new StockSender(this, this.out);
             this.encryptor = new StockEncryptor(this, this.sender);
-            this.processor = new StockProcessor(this, this.encryptor, this.server.getStock());
-            this.decryptor = new StockDecryptor(this, this.processor);
-            this.receiver = new StockReceiver(this, this.decryptor, this.in);
+            this.decryptor = new StockDecryptor(this, new StockProcessor(this, this.encryptor, this.server.getStock(),
+                    this.server.getDatabaseExecutor(), this.server.getCompressor(), this.server.getResponseCache(),
+                    this.server.getChangePublisher()));
+            this.scheduler = new StockScheduler(this.decryptor, this.server.getWorkerExecutor());
+            this.receiver = new StockReceiver(this, this.scheduler, this.in);
         } catch (IOException e) {
             close();
         }
@@ -39,10 +44,17 @@ public class StockConnection implements Runnable {
     @Override
     public void run() {
         while(!this.socket.isClosed()) {
+            try {
+                this.scheduler.awaitReady();
+            } catch (InterruptedException e) {
+                close();
+                return;
+            }
             this.receiver.receiveMessage();
         }
     }
 
+    @Override
     public void close() {
         server.removeConnection(this);
         try {
@@ -65,4 +77,15 @@ public class StockConnection implements Runnable {
     public Socket getSocket() {
         return socket;
     }
+
+    @Override
+    public PacketCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public Sender getSender() {
+        return sender;
+    }
+
 }
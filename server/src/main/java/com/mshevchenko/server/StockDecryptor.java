@@ -6,27 +6,30 @@ import com.mshevchenko.packet.Packet;
 import com.mshevchenko.packet.Status;
 import com.mshevchenko.packet.exceptions.LostDataException;
 import com.mshevchenko.packet.exceptions.NotPacketException;
+import com.mshevchenko.server_interfaces.Connection;
 import com.mshevchenko.server_interfaces.Decryptor;
 import com.mshevchenko.server_interfaces.Processor;
 
+import java.nio.ByteBuffer;
+
 public class StockDecryptor implements Decryptor {
 
-    private StockConnection connection;
+    private Connection connection;
     private Processor processor;
 
-    public StockDecryptor(StockConnection connection, Processor processor) {
+    public StockDecryptor(Connection connection, Processor processor) {
         this.connection = connection;
         this.processor = processor;
     }
 
     @Override
-    public void decrypt(byte[] packet) {
+    public void decrypt(byte[] packet, int offset, int length) {
         /*for(byte b : packet) {
             System.out.print((int)b + " ");
         }
         System.out.println();*/
         try {
-            Packet p = Packet.decryptPacket(packet);
+            Packet p = this.connection.getCodec().decode(ByteBuffer.wrap(packet, offset, length));
             this.processor.process(p);
         } catch (LostDataException e) {
             //System.out.println(1);
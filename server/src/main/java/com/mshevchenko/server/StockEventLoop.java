@@ -0,0 +1,88 @@
+package com.mshevchenko.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class StockEventLoop implements Runnable {
+
+    private Selector selector;
+    private Queue<Runnable> tasks;
+    private volatile Thread thread;
+    private volatile boolean closed;
+
+    public StockEventLoop() throws IOException {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public void run() {
+        this.thread = Thread.currentThread();
+        try {
+            while(!this.closed) {
+                this.selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    StockChannelConnection connection = (StockChannelConnection) key.attachment();
+                    if(key.isValid() && key.isReadable()) {
+                        connection.read();
+                    }
+                    if(key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            this.closed = true;
+        }
+        closeSelector();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while((task = this.tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    public void register(StockChannelConnection connection) {
+        execute(() -> {
+            try {
+                connection.setKey(connection.getChannel().register(this.selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                connection.close();
+            }
+        });
+    }
+
+    public void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    public void close() {
+        this.closed = true;
+        this.selector.wakeup();
+    }
+
+    private void closeSelector() {
+        try {
+            this.selector.close();
+        } catch (IOException e) {
+            this.tasks.clear();
+        }
+    }
+
+}
@@ -1,38 +1,87 @@
 package com.mshevchenko.server;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.crypto.PacketCipher;
+import com.mshevchenko.crypto.SessionHandshake;
 import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.SharedFrame;
 import com.mshevchenko.packet.Status;
 import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.Flags;
+import com.mshevchenko.server_interfaces.Connection;
 import com.mshevchenko.server_interfaces.Encryptor;
 import com.mshevchenko.server_interfaces.Processor;
 import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock_objects.ChangeSet;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
 import com.mshevchenko.stock_objects.Pair;
 import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.SortSpec;
+import com.mshevchenko.stock_objects.payload.PayloadFormat;
+import com.mshevchenko.stock_objects.payload.Schema;
+import com.mshevchenko.stock_objects.payload.Schemas;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class StockProcessor implements Processor {
 
     public static String SUCCESS_MESSAGE = "success";
     public static String FAILURE_MESSAGE = "failure";
     public static String ERROR_MESSAGE = "error";
+    public static String CONFLICT_MESSAGE = "conflict";
     public static String UNKNOWN_OPERATION = "unknown operation";
-    private StockConnection connection;
-    private ObjectMapper objectMapper;
+    public static int STREAM_BATCH_SIZE = 256;
+    private Connection connection;
+    private volatile PayloadFormat payloadFormat = PayloadFormat.JSON;
     private Encryptor encryptor;
     private Stock stock;
+    private Executor databaseExecutor;
+    private PacketCompressor compressor;
+    private PacketCipher sessionCipher;
+    private ResponseCache responseCache;
+    private ChangePublisher changePublisher;
     private long packetNumber = 0;
 
-    public StockProcessor(StockConnection connection, Encryptor encryptor, Stock stock) {
+    public StockProcessor(Connection connection, Encryptor encryptor, Stock stock) {
+        this(connection, encryptor, stock, Runnable::run);
+    }
+
+    public StockProcessor(Connection connection, Encryptor encryptor, Stock stock, Executor databaseExecutor) {
+        this(connection, encryptor, stock, databaseExecutor, PacketCompressor.DEFAULT);
+    }
+
+    public StockProcessor(Connection connection, Encryptor encryptor, Stock stock, Executor databaseExecutor, PacketCompressor compressor) {
+        this(connection, encryptor, stock, databaseExecutor, compressor, null);
+    }
+
+    public StockProcessor(Connection connection, Encryptor encryptor, Stock stock, Executor databaseExecutor, PacketCompressor compressor,
+                          ResponseCache responseCache) {
+        this(connection, encryptor, stock, databaseExecutor, compressor, responseCache, null);
+    }
+
+    public StockProcessor(Connection connection, Encryptor encryptor, Stock stock, Executor databaseExecutor, PacketCompressor compressor,
+                          ResponseCache responseCache, ChangePublisher changePublisher) {
         this.connection = connection;
         this.encryptor = encryptor;
-        this.objectMapper = new ObjectMapper();
         this.stock = stock;
+        this.databaseExecutor = databaseExecutor;
+        this.compressor = compressor;
+        this.responseCache = responseCache;
+        this.changePublisher = changePublisher;
     }
 
     @Override
@@ -41,6 +90,68 @@ public class StockProcessor implements Processor {
             this.encryptor.encrypt(packet);
             return;
         }
+        if(packet.getCommand() == Commands.STOP) {
+            this.connection.close();
+            return;
+        }
+        try {
+            CompletableFuture.runAsync(() -> execute(packet), this.databaseExecutor).join();
+        } catch (RuntimeException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setFlags(0);
+            packet.setSharedFrame(null);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+        this.encryptor.encrypt(packet);
+        if(this.sessionCipher != null) {
+            this.connection.getCodec().setCipher(this.sessionCipher);
+            this.sessionCipher = null;
+        }
+    }
+
+    private void execute(Packet packet) {
+        boolean stream = (packet.getFlags() & Flags.STREAM) != 0;
+        boolean versioned = (packet.getFlags() & Flags.VERSIONED) != 0 && !stream && Commands.isRead(packet.getCommand());
+        packet.setFlags(0);
+        if(versioned) {
+            executeVersioned(packet);
+        }
+        else {
+            dispatch(packet, stream);
+        }
+    }
+
+    private void executeVersioned(Packet packet) {
+        byte[] request = packet.getBody();
+        if(request.length < Long.BYTES) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+            return;
+        }
+        long ifVersion = ByteBuffer.wrap(request).getLong();
+        long version = this.stock.getChangeLog().getRevision();
+        if(ifVersion != 0 && ifVersion == version) {
+            packet.setStatus(Status.NOT_MODIFIED);
+            packet.setFlags(Flags.VERSIONED);
+            packet.setBody(versioned(version, new byte[0]));
+            return;
+        }
+        packet.setBody(Arrays.copyOfRange(request, Long.BYTES, request.length));
+        packet.setFlags(Flags.VERSIONED);
+        dispatch(packet, false);
+        if(packet.getStatus() != Status.SUCCESS) {
+            packet.setFlags(0);
+        }
+        else if(packet.getSharedFrame() == null) {
+            packet.setBody(versioned(version, packet.getBody()));
+        }
+    }
+
+    private static byte[] versioned(long version, byte[] body) {
+        return ByteBuffer.allocate(Long.BYTES + body.length).putLong(version).put(body).array();
+    }
+
+    private void dispatch(Packet packet, boolean stream) {
         switch (packet.getCommand()) {
             case Commands.INSERT_GROUP:
                 insertGroup(packet);
@@ -48,6 +159,12 @@ public class StockProcessor implements Processor {
             case Commands.INSERT_PRODUCT:
                 insertProduct(packet);
                 break;
+            case Commands.INSERT_GROUPS:
+                insertGroups(packet);
+                break;
+            case Commands.INSERT_PRODUCTS:
+                insertProducts(packet);
+                break;
             case Commands.UPDATE_GROUP:
                 updateGroup(packet);
                 break;
@@ -64,13 +181,23 @@ public class StockProcessor implements Processor {
                 getGroups(packet);
                 break;
             case Commands.GET_PRODUCTS:
-                getProducts(packet);
+                if(stream) {
+                    streamProducts(packet);
+                }
+                else {
+                    getProducts(packet);
+                }
                 break;
             case Commands.GET_GROUPS_BY_FILTER:
                 getGroupsByFilter(packet);
                 break;
             case Commands.GET_PRODUCTS_BY_FILTER:
-                getProductsByFilter(packet);
+                if(stream) {
+                    streamProductsByFilter(packet);
+                }
+                else {
+                    getProductsByFilter(packet);
+                }
                 break;
             case Commands.GET_GROUP_BY_ID:
                 getGroupById(packet);
@@ -91,10 +218,41 @@ public class StockProcessor implements Processor {
                 deleteProductsByIds(packet);
                 break;
             case Commands.GET_PRODUCTS_INNER_JOIN_GROUPS:
-                getProductsInnerJoinGroups(packet);
+                if(stream) {
+                    streamProductsInnerJoinGroups(packet);
+                }
+                else {
+                    getProductsInnerJoinGroups(packet);
+                }
                 break;
             case Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_BY_FILTER:
-                getProductsInnerJoinGroupsByFilter(packet);
+                if(stream) {
+                    streamProductsInnerJoinGroupsByFilter(packet);
+                }
+                else {
+                    getProductsInnerJoinGroupsByFilter(packet);
+                }
+                break;
+            case Commands.GET_GROUPS_PAGE:
+                getGroupsPage(packet);
+                break;
+            case Commands.GET_PRODUCTS_PAGE:
+                getProductsPage(packet);
+                break;
+            case Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_PAGE:
+                getProductsInnerJoinGroupsPage(packet);
+                break;
+            case Commands.GET_PRODUCTS_SORTED:
+                getProductsSorted(packet);
+                break;
+            case Commands.GET_PRODUCTS_INNER_JOIN_GROUPS_SORTED:
+                getProductsInnerJoinGroupsSorted(packet);
+                break;
+            case Commands.GET_INVENTORY_TOTALS:
+                getInventoryTotals(packet);
+                break;
+            case Commands.GET_CHANGES_SINCE:
+                getChangesSince(packet);
                 break;
             case Commands.INCREASE_PRODUCT_QUANTITY:
                 increaseProductQuantity(packet);
@@ -105,20 +263,37 @@ public class StockProcessor implements Processor {
             case Commands.DECREASE_PRODUCT_QUANTITY:
                 decreaseProductQuantity(packet);
                 break;
-            case Commands.STOP:
-                this.connection.close();
-                return;
+            case Commands.ADJUST_PRODUCTS_QUANTITY:
+                adjustProductsQuantity(packet);
+                break;
+            case Commands.ORDER_PICK:
+                pickOrder(packet);
+                break;
+            case Commands.HANDSHAKE:
+                handshake(packet);
+                break;
+            case Commands.SET_PAYLOAD_FORMAT:
+                setPayloadFormat(packet);
+                break;
+            case Commands.SET_COMPRESSION:
+                setCompression(packet);
+                break;
+            case Commands.SUBSCRIBE:
+                subscribe(packet);
+                break;
+            case Commands.UNSUBSCRIBE:
+                unsubscribe(packet);
+                break;
             default:
                 packet.setStatus(Status.UNKNOWN_OPERATION);
                 packet.setMessage(UNKNOWN_OPERATION);
                 break;
         }
-        this.encryptor.encrypt(packet);
     }
 
     private void insertGroup(Packet packet) {
         try {
-            Group group = objectMapper.readValue(packet.getMessage(), Group.class);
+            Group group = this.payloadFormat.read(Schemas.GROUP, packet.getBody());
             int result = this.stock.insertGroup(group);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -128,7 +303,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -136,7 +311,7 @@ public class StockProcessor implements Processor {
 
     private void insertProduct(Packet packet) {
         try {
-            Product product = objectMapper.readValue(packet.getMessage(), Product.class);
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
             int result = this.stock.insertProduct(product);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -146,7 +321,33 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void insertGroups(Packet packet) {
+        try {
+            List<Group> groups = this.payloadFormat.read(Schemas.GROUPS, packet.getBody());
+            int[] results = this.stock.insertGroups(groups);
+            byte[] body = this.payloadFormat.write(Schemas.INT_ARRAY, results);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void insertProducts(Packet packet) {
+        try {
+            List<Product> products = this.payloadFormat.read(Schemas.PRODUCTS, packet.getBody());
+            int[] results = this.stock.insertProducts(products);
+            byte[] body = this.payloadFormat.write(Schemas.INT_ARRAY, results);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -154,17 +355,21 @@ public class StockProcessor implements Processor {
 
     private void updateGroup(Packet packet) {
         try {
-            Group group = objectMapper.readValue(packet.getMessage(), Group.class);
+            Group group = this.payloadFormat.read(Schemas.GROUP, packet.getBody());
             int result = this.stock.updateGroup(group);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
                 packet.setMessage(SUCCESS_MESSAGE);
             }
+            else if(result == Stock.VERSION_CONFLICT) {
+                packet.setStatus(Status.CONFLICT);
+                packet.setMessage(CONFLICT_MESSAGE);
+            }
             else {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -172,17 +377,21 @@ public class StockProcessor implements Processor {
 
     private void updateProduct(Packet packet) {
         try {
-            Product product = objectMapper.readValue(packet.getMessage(), Product.class);
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
             int result = this.stock.updateProduct(product);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
                 packet.setMessage(SUCCESS_MESSAGE);
             }
+            else if(result == Stock.VERSION_CONFLICT) {
+                packet.setStatus(Status.CONFLICT);
+                packet.setMessage(CONFLICT_MESSAGE);
+            }
             else {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -190,7 +399,7 @@ public class StockProcessor implements Processor {
 
     private void deleteGroup(Packet packet) {
         try {
-            Group group = objectMapper.readValue(packet.getMessage(), Group.class);
+            Group group = this.payloadFormat.read(Schemas.GROUP, packet.getBody());
             int result = this.stock.deleteGroup(group);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -200,7 +409,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -208,7 +417,7 @@ public class StockProcessor implements Processor {
 
     private void deleteProduct(Packet packet) {
         try {
-            Product product = objectMapper.readValue(packet.getMessage(), Product.class);
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
             int result = this.stock.deleteProduct(product);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -218,31 +427,44 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
     }
 
     private void getGroups(Packet packet) {
-        try {
-            List<Group> groups = this.stock.getGroups();
-            String json = this.objectMapper.writeValueAsString(groups);
-            packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
-            packet.setStatus(Status.ERROR);
-            packet.setMessage(ERROR_MESSAGE);
-        }
+        cachedRead(packet, Schemas.GROUPS, this.stock::getGroups);
     }
 
     private void getProducts(Packet packet) {
+        cachedRead(packet, Schemas.PRODUCTS, this.stock::getProducts);
+    }
+
+    private <T> void cachedRead(Packet packet, Schema<T> schema, Supplier<T> reader) {
         try {
-            List<Product> products = this.stock.getProducts();
-            String json = this.objectMapper.writeValueAsString(products);
+            ResponseCache cache = this.responseCache;
+            if(cache == null) {
+                packet.setStatus(Status.SUCCESS);
+                packet.setBody(this.payloadFormat.write(schema, reader.get()));
+                return;
+            }
+            boolean versioned = (packet.getFlags() & Flags.VERSIONED) != 0;
+            int key = versioned ? packet.getCommand() | Flags.VERSIONED << 24 : packet.getCommand();
+            SharedFrame frame = cache.get(key, this.payloadFormat);
+            if(frame == null) {
+                long version = cache.getVersion();
+                byte[] body = this.payloadFormat.write(schema, reader.get());
+                if(versioned) {
+                    body = versioned(version, body);
+                }
+                frame = new SharedFrame(Status.SUCCESS, packet.getCommand(), packet.getFlags(), body);
+                cache.put(key, this.payloadFormat, version, frame);
+            }
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(frame.getBody());
+            packet.setSharedFrame(frame);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -250,12 +472,12 @@ public class StockProcessor implements Processor {
 
     private void getGroupsByFilter(Packet packet) {
         try {
-            Group group = this.objectMapper.readValue(packet.getMessage(), Group.class);
+            Group group = this.payloadFormat.read(Schemas.GROUP, packet.getBody());
             List<Group> groups = this.stock.getGroupsByFilter(group);
-            String json = this.objectMapper.writeValueAsString(groups);
+            byte[] body = this.payloadFormat.write(Schemas.GROUPS, groups);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -263,12 +485,12 @@ public class StockProcessor implements Processor {
 
     private void getProductsByFilter(Packet packet) {
         try {
-            Product product = this.objectMapper.readValue(packet.getMessage(), Product.class);
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
             List<Product> products = this.stock.getProductsByFilter(product);
-            String json = this.objectMapper.writeValueAsString(products);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCTS, products);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -276,17 +498,17 @@ public class StockProcessor implements Processor {
 
     private void getGroupById(Packet packet) {
         try {
-            int id = this.objectMapper.readValue(packet.getMessage(), int.class);
+            int id = this.payloadFormat.read(Schemas.INT, packet.getBody());
             Group group = this.stock.getGroupById(id);
             if(group == null) {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
                 return;
             }
-            String json = this.objectMapper.writeValueAsString(group);
+            byte[] body = this.payloadFormat.write(Schemas.GROUP, group);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -294,17 +516,17 @@ public class StockProcessor implements Processor {
 
     private void getProductById(Packet packet) {
         try {
-            int id = this.objectMapper.readValue(packet.getMessage(), int.class);
+            int id = this.payloadFormat.read(Schemas.INT, packet.getBody());
             Product product = this.stock.getProductById(id);
             if(product == null) {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
                 return;
             }
-            String json = this.objectMapper.writeValueAsString(product);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCT, product);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -312,7 +534,7 @@ public class StockProcessor implements Processor {
 
     private void deleteGroupById(Packet packet) {
         try {
-            int id = this.objectMapper.readValue(packet.getMessage(), int.class);
+            int id = this.payloadFormat.read(Schemas.INT, packet.getBody());
             int result = this.stock.deleteGroupById(id);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -322,7 +544,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -330,7 +552,7 @@ public class StockProcessor implements Processor {
 
     private void deleteProductById(Packet packet) {
         try {
-            int id = this.objectMapper.readValue(packet.getMessage(), int.class);
+            int id = this.payloadFormat.read(Schemas.INT, packet.getBody());
             int result = this.stock.deleteProductById(id);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -340,7 +562,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -348,7 +570,7 @@ public class StockProcessor implements Processor {
 
     private void deleteGroupsByIds(Packet packet) {
         try {
-            int[] ids = this.objectMapper.readValue(packet.getMessage(), int[].class);
+            int[] ids = this.payloadFormat.read(Schemas.INT_ARRAY, packet.getBody());
             int result = this.stock.deleteGroupsByIds(ids);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -358,7 +580,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -366,7 +588,7 @@ public class StockProcessor implements Processor {
 
     private void deleteProductsByIds(Packet packet) {
         try {
-            int[] ids = this.objectMapper.readValue(packet.getMessage(), int[].class);
+            int[] ids = this.payloadFormat.read(Schemas.INT_ARRAY, packet.getBody());
             int result = this.stock.deleteProductsByIds(ids);
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -376,32 +598,106 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
     }
 
     private void getProductsInnerJoinGroups(Packet packet) {
+        cachedRead(packet, Schemas.ROWS, this.stock::getProductsInnerJoinGroups);
+    }
+
+    private void getProductsInnerJoinGroupsByFilter(Packet packet) {
         try {
-            List<String[]> products = this.stock.getProductsInnerJoinGroups();
-            String json = this.objectMapper.writeValueAsString(products);
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
+            List<String[]> products = this.stock.getProductsInnerJoinGroupsByFilter(product);
+            byte[] body = this.payloadFormat.write(Schemas.ROWS, products);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
     }
 
-    private void getProductsInnerJoinGroupsByFilter(Packet packet) {
+    private void getGroupsPage(Packet packet) {
         try {
-            Product product = this.objectMapper.readValue(packet.getMessage(), Product.class);
-            List<String[]> products = this.stock.getProductsInnerJoinGroupsByFilter(product);
-            String json = this.objectMapper.writeValueAsString(products);
+            PageRequest<Group> request = this.payloadFormat.read(Schemas.GROUPS_PAGE_REQUEST, packet.getBody());
+            Page<Group> page = this.stock.getGroupsPage(request);
+            byte[] body = this.payloadFormat.write(Schemas.GROUPS_PAGE, page);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void getProductsPage(Packet packet) {
+        try {
+            PageRequest<Product> request = this.payloadFormat.read(Schemas.PRODUCTS_PAGE_REQUEST, packet.getBody());
+            Page<Product> page = this.stock.getProductsPage(request);
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCTS_PAGE, page);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void getProductsInnerJoinGroupsPage(Packet packet) {
+        try {
+            PageRequest<Product> request = this.payloadFormat.read(Schemas.PRODUCTS_PAGE_REQUEST, packet.getBody());
+            Page<String[]> page = this.stock.getProductsInnerJoinGroupsPage(request);
+            byte[] body = this.payloadFormat.write(Schemas.ROWS_PAGE, page);
             packet.setStatus(Status.SUCCESS);
-            packet.setMessage(json);
-        } catch (JsonProcessingException e) {
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void getProductsSorted(Packet packet) {
+        try {
+            Pair<Product, SortSpec> request = this.payloadFormat.read(Schemas.SORTED_PRODUCTS_REQUEST, packet.getBody());
+            List<Product> products = this.stock.getProductsSorted(request.getFirst(), request.getSecond());
+            byte[] body = this.payloadFormat.write(Schemas.PRODUCTS, products);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void getProductsInnerJoinGroupsSorted(Packet packet) {
+        try {
+            Pair<Product, SortSpec> request = this.payloadFormat.read(Schemas.SORTED_PRODUCTS_REQUEST, packet.getBody());
+            List<String[]> products = this.stock.getProductsInnerJoinGroupsSorted(request.getFirst(), request.getSecond());
+            byte[] body = this.payloadFormat.write(Schemas.ROWS, products);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void getInventoryTotals(Packet packet) {
+        cachedRead(packet, Schemas.INVENTORY_TOTALS, this.stock::getInventoryTotals);
+    }
+
+    private void getChangesSince(Packet packet) {
+        try {
+            long revision = this.payloadFormat.read(Schemas.LONG, packet.getBody());
+            ChangeSet changes = this.stock.getChangeLog().getChangesSince(revision);
+            byte[] body = this.payloadFormat.write(Schemas.CHANGE_SET, changes);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -409,7 +705,7 @@ public class StockProcessor implements Processor {
 
     private void increaseProductQuantity(Packet packet) {
         try {
-            Pair<Integer, Integer> pair = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>(){});
+            Pair<Integer, Integer> pair = this.payloadFormat.read(Schemas.ID_VALUE, packet.getBody());
             int result = this.stock.increaseProductQuantity(pair.getFirst(), pair.getSecond());
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -419,7 +715,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -427,7 +723,7 @@ public class StockProcessor implements Processor {
 
     private void increaseProductsQuantity(Packet packet) {
         try {
-            Pair<int[], Integer> pair = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>(){});
+            Pair<int[], Integer> pair = this.payloadFormat.read(Schemas.IDS_VALUE, packet.getBody());
             int result = this.stock.increaseProductsQuantity(pair.getFirst(), pair.getSecond());
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -437,7 +733,7 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
@@ -445,7 +741,7 @@ public class StockProcessor implements Processor {
 
     private void decreaseProductQuantity(Packet packet) {
         try {
-            Pair<Integer, Integer> pair = this.objectMapper.readValue(packet.getMessage(), new TypeReference<>(){});
+            Pair<Integer, Integer> pair = this.payloadFormat.read(Schemas.ID_VALUE, packet.getBody());
             int result = this.stock.decreaseProductQuantity(pair.getFirst(), pair.getSecond());
             if(result > 0) {
                 packet.setStatus(Status.SUCCESS);
@@ -455,10 +751,191 @@ public class StockProcessor implements Processor {
                 packet.setStatus(Status.FAILURE);
                 packet.setMessage(FAILURE_MESSAGE);
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void adjustProductsQuantity(Packet packet) {
+        try {
+            Map<Integer, Integer> deltas = this.payloadFormat.read(Schemas.ID_VALUES, packet.getBody());
+            Map<Integer, Integer> results = this.stock.adjustProductsQuantity(deltas);
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUES, results);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException | SQLException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void pickOrder(Packet packet) {
+        try {
+            Map<Integer, Integer> lines = this.payloadFormat.read(Schemas.ID_VALUES, packet.getBody());
+            Map<Integer, Integer> failures = this.stock.pickOrder(lines);
+            byte[] body = this.payloadFormat.write(Schemas.ID_VALUES, failures);
+            packet.setStatus(failures.isEmpty() ? Status.SUCCESS : Status.FAILURE);
+            packet.setBody(body);
+        } catch (IOException | SQLException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void handshake(Packet packet) {
+        try {
+            SessionHandshake handshake = new SessionHandshake();
+            this.sessionCipher = handshake.createServerCipher(packet.getMessage());
+            packet.setStatus(Status.SUCCESS);
+            packet.setMessage(handshake.getPublicKey());
+        } catch (GeneralSecurityException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+        }
+    }
+
+    private void setPayloadFormat(Packet packet) {
+        PayloadFormat format = PayloadFormat.forName(packet.getMessage());
+        if(format == null) {
+            packet.setStatus(Status.FAILURE);
+            packet.setMessage(FAILURE_MESSAGE);
+            return;
+        }
+        this.payloadFormat = format;
+        packet.setStatus(Status.SUCCESS);
+        packet.setMessage(SUCCESS_MESSAGE);
+    }
+
+    private void subscribe(Packet packet) {
+        if(this.changePublisher == null) {
+            packet.setStatus(Status.FAILURE);
+            packet.setMessage(FAILURE_MESSAGE);
+            return;
+        }
+        try {
+            long revision = this.changePublisher.subscribe(this.connection, () -> this.payloadFormat);
+            byte[] body = this.payloadFormat.write(Schemas.LONG, revision);
+            packet.setStatus(Status.SUCCESS);
+            packet.setBody(body);
+        } catch (IOException e) {
+            this.changePublisher.unsubscribe(this.connection);
             packet.setStatus(Status.ERROR);
             packet.setMessage(ERROR_MESSAGE);
         }
     }
 
+    private void unsubscribe(Packet packet) {
+        if(this.changePublisher != null && this.changePublisher.unsubscribe(this.connection)) {
+            packet.setStatus(Status.SUCCESS);
+            packet.setMessage(SUCCESS_MESSAGE);
+        }
+        else {
+            packet.setStatus(Status.FAILURE);
+            packet.setMessage(FAILURE_MESSAGE);
+        }
+    }
+
+    private void setCompression(Packet packet) {
+        if(packet.getMessage().equals(PacketCompressor.NAME)) {
+            this.connection.getCodec().setCompressor(this.compressor);
+        }
+        else if(packet.getMessage().isEmpty()) {
+            this.connection.getCodec().setCompressor(null);
+        }
+        else {
+            packet.setStatus(Status.FAILURE);
+            packet.setMessage(FAILURE_MESSAGE);
+            return;
+        }
+        packet.setStatus(Status.SUCCESS);
+        packet.setMessage(SUCCESS_MESSAGE);
+    }
+
+    private void streamProducts(Packet packet) {
+        StreamBatcher<Product> batcher = new StreamBatcher<>(packet, Schemas.PRODUCTS);
+        this.stock.getProducts(batcher);
+        batcher.finish();
+    }
+
+    private void streamProductsByFilter(Packet packet) {
+        try {
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
+            StreamBatcher<Product> batcher = new StreamBatcher<>(packet, Schemas.PRODUCTS);
+            this.stock.getProductsByFilter(product, batcher);
+            batcher.finish();
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+            packet.setFlags(Flags.STREAM | Flags.END_OF_STREAM);
+        }
+    }
+
+    private void streamProductsInnerJoinGroups(Packet packet) {
+        StreamBatcher<String[]> batcher = new StreamBatcher<>(packet, Schemas.ROWS);
+        this.stock.getProductsInnerJoinGroups(batcher);
+        batcher.finish();
+    }
+
+    private void streamProductsInnerJoinGroupsByFilter(Packet packet) {
+        try {
+            Product product = this.payloadFormat.read(Schemas.PRODUCT, packet.getBody());
+            StreamBatcher<String[]> batcher = new StreamBatcher<>(packet, Schemas.ROWS);
+            this.stock.getProductsInnerJoinGroupsByFilter(product, batcher);
+            batcher.finish();
+        } catch (IOException e) {
+            packet.setStatus(Status.ERROR);
+            packet.setMessage(ERROR_MESSAGE);
+            packet.setFlags(Flags.STREAM | Flags.END_OF_STREAM);
+        }
+    }
+
+    private class StreamBatcher<T> implements Consumer<T> {
+
+        private Packet packet;
+        private Schema<List<T>> schema;
+        private List<T> batch;
+        private boolean failed;
+
+        private StreamBatcher(Packet packet, Schema<List<T>> schema) {
+            this.packet = packet;
+            this.schema = schema;
+            this.batch = new ArrayList<>(STREAM_BATCH_SIZE);
+        }
+
+        @Override
+        public void accept(T value) {
+            if(this.failed) {
+                return;
+            }
+            this.batch.add(value);
+            if(this.batch.size() >= STREAM_BATCH_SIZE) {
+                try {
+                    Packet continuation = new Packet(this.packet.getPacketNumber(), Status.SUCCESS, this.packet.getCommand(),
+                            payloadFormat.write(this.schema, this.batch));
+                    continuation.setFlags(Flags.STREAM);
+                    encryptor.encrypt(continuation);
+                } catch (IOException e) {
+                    this.failed = true;
+                }
+                this.batch.clear();
+            }
+        }
+
+        private void finish() {
+            this.packet.setFlags(Flags.STREAM | Flags.END_OF_STREAM);
+            try {
+                if(!this.failed) {
+                    this.packet.setBody(payloadFormat.write(this.schema, this.batch));
+                    this.packet.setStatus(Status.SUCCESS);
+                    return;
+                }
+            } catch (IOException ignored) {
+            }
+            this.packet.setStatus(Status.ERROR);
+            this.packet.setMessage(ERROR_MESSAGE);
+        }
+
+    }
+
 }
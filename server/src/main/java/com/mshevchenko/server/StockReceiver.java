@@ -1,52 +1,40 @@
 package com.mshevchenko.server;
 
-import com.mshevchenko.packet.Packet;
+import com.mshevchenko.packet.PacketFrameDecoder;
+import com.mshevchenko.packet.exceptions.NotPacketException;
+import com.mshevchenko.server_interfaces.Connection;
 import com.mshevchenko.server_interfaces.Receiver;
 import com.mshevchenko.server_interfaces.Decryptor;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
 
 public class StockReceiver implements Receiver {
 
-    private StockConnection connection;
+    private Connection connection;
     private Decryptor decryptor;
     private InputStream in;
+    private PacketFrameDecoder frameDecoder;
 
-    public StockReceiver(StockConnection connection, Decryptor decryptor, InputStream in) throws IOException {
+    public StockReceiver(Connection connection, Decryptor decryptor, InputStream in) throws IOException {
         this.connection = connection;
         this.decryptor = decryptor;
         this.in = in;
+        this.frameDecoder = new PacketFrameDecoder();
     }
 
     @Override
     public void receiveMessage() {
         try {
-            int magic = this.in.read();
-            if(magic != Packet.MAGIC) {
-                this.connection.close();
+            if(this.frameDecoder.read(this.in)) {
+                this.decryptor.decrypt(this.frameDecoder.getFrame(), 0, this.frameDecoder.getFrameLength());
             }
             else {
-                readPacket();
+                this.connection.close();
             }
-        } catch (IOException e) {
+        } catch (IOException | NotPacketException e) {
             this.connection.close();
         }
     }
 
-    private void readPacket() throws IOException {
-        byte[] packetStart = new byte[16];
-        this.in.read(packetStart, 0, packetStart.length);
-        byte[] messageLength = new byte[4];
-        this.in.read(messageLength, 0, messageLength.length);
-        int mesLength = ByteBuffer.wrap(messageLength).getInt();
-        byte[] packet = new byte[mesLength + 23];
-        packet[0] = Packet.MAGIC;
-        System.arraycopy(packetStart, 0, packet, 1, packetStart.length);
-        System.arraycopy(messageLength, 0, packet, 1 + packetStart.length, messageLength.length);
-        this.in.read(packet, 21, mesLength + 2);
-        this.decryptor.decrypt(packet);
-    }
-
 }
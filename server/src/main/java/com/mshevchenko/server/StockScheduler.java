@@ -0,0 +1,121 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.packet.Commands;
+import com.mshevchenko.packet.PacketCodec;
+import com.mshevchenko.packet.Status;
+import com.mshevchenko.server_interfaces.Decryptor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class StockScheduler implements Decryptor {
+
+    public static final int MAX_IN_FLIGHT = 128;
+
+    private static final int STATUS_OFFSET = 9;
+    private static final int COMMAND_OFFSET = 13;
+
+    private Decryptor decryptor;
+    private Executor executor;
+    private int maxInFlight;
+    private Runnable resume;
+    private int inFlight;
+    private boolean session;
+    private CompletableFuture<Void> barrier;
+    private List<CompletableFuture<Void>> reads;
+
+    public StockScheduler(Decryptor decryptor, Executor executor) {
+        this(decryptor, executor, MAX_IN_FLIGHT, () -> {});
+    }
+
+    public StockScheduler(Decryptor decryptor, Executor executor, int maxInFlight, Runnable resume) {
+        if(maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight " + maxInFlight);
+        }
+        this.decryptor = decryptor;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.resume = resume;
+        this.barrier = CompletableFuture.completedFuture(null);
+        this.reads = new ArrayList<>();
+    }
+
+    @Override
+    public void decrypt(byte[] packet, int offset, int length) {
+        byte[] frame = Arrays.copyOfRange(packet, offset, offset + length);
+        int status = -1;
+        int command = -1;
+        if(length >= PacketCodec.HEADER_LENGTH) {
+            ByteBuffer header = ByteBuffer.wrap(frame);
+            status = header.getInt(STATUS_OFFSET);
+            command = header.getInt(COMMAND_OFFSET) & PacketCodec.COMMAND_MASK;
+        }
+        if(status != Status.CLIENT || Commands.isSession(command)) {
+            this.barrier = schedule(drain(), frame, true);
+        }
+        else if(Commands.isRead(command)) {
+            this.reads.removeIf(CompletableFuture::isDone);
+            this.reads.add(schedule(this.barrier, frame, false));
+        }
+        else {
+            this.barrier = schedule(drain(), frame, false);
+        }
+    }
+
+    public synchronized boolean isReady() {
+        return !this.session && this.inFlight < this.maxInFlight;
+    }
+
+    public synchronized void awaitReady() throws InterruptedException {
+        while(!isReady()) {
+            wait();
+        }
+    }
+
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    private CompletableFuture<Void> drain() {
+        if(!this.reads.isEmpty()) {
+            this.reads.add(this.barrier);
+            this.barrier = CompletableFuture.allOf(this.reads.toArray(new CompletableFuture[0]));
+            this.reads.clear();
+        }
+        return this.barrier;
+    }
+
+    private CompletableFuture<Void> schedule(CompletableFuture<Void> after, byte[] frame, boolean session) {
+        acquire(session);
+        CompletableFuture<Void> future = after.exceptionally(e -> null)
+                .thenRunAsync(() -> this.decryptor.decrypt(frame, 0, frame.length), this.executor);
+        future.whenComplete((result, e) -> release(session));
+        return future;
+    }
+
+    private synchronized void acquire(boolean session) {
+        this.inFlight++;
+        this.session |= session;
+    }
+
+    private void release(boolean session) {
+        boolean resumed;
+        synchronized(this) {
+            boolean ready = isReady();
+            this.inFlight--;
+            if(session) {
+                this.session = false;
+            }
+            resumed = !ready && isReady();
+            notifyAll();
+        }
+        if(resumed) {
+            this.resume.run();
+        }
+    }
+
+}
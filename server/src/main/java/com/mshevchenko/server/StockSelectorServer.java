@@ -0,0 +1,162 @@
+package com.mshevchenko.server;
+
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.server_interfaces.Connection;
+import com.mshevchenko.server_interfaces.Server;
+import com.mshevchenko.stock.Stock;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class StockSelectorServer implements Server {
+
+    private int port;
+    private Stock stock;
+    private Set<StockChannelConnection> connections;
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private StockEventLoop[] eventLoops;
+    private ExecutorService workerExecutor;
+    private int nextEventLoop = 0;
+    private PacketCompressor compressor = new PacketCompressor(PacketCompressor.DEFAULT_THRESHOLD, PacketCompressor.DEFAULT_LEVEL);
+    private ResponseCache responseCache;
+    private ChangePublisher changePublisher;
+
+    public StockSelectorServer(int port, Stock stock) throws IOException {
+        this(port, stock, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StockSelectorServer(int port, Stock stock, int eventLoopCount) throws IOException {
+        this.workerExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.port = port;
+        this.stock = stock;
+        this.responseCache = new ResponseCache(stock.getChangeLog());
+        this.changePublisher = new ChangePublisher(stock.getChangeLog());
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(this.port));
+        this.serverChannel.configureBlocking(false);
+        this.acceptSelector = Selector.open();
+        this.serverChannel.register(this.acceptSelector, SelectionKey.OP_ACCEPT);
+        this.eventLoops = new StockEventLoop[Math.max(1, eventLoopCount)];
+        for(int i = 0; i < this.eventLoops.length; i++) {
+            this.eventLoops[i] = new StockEventLoop();
+            Thread thread = new Thread(this.eventLoops[i], "stock-event-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void run() {
+        while(this.serverChannel.isOpen()) {
+            try {
+                this.acceptSelector.select();
+                Iterator<SelectionKey> keys = this.acceptSelector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(key.isValid() && key.isAcceptable()) {
+                        accept();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+        try {
+            this.acceptSelector.close();
+        } catch (IOException e) {
+            this.acceptSelector = null;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while((channel = this.serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            StockEventLoop eventLoop = this.eventLoops[this.nextEventLoop];
+            this.nextEventLoop = (this.nextEventLoop + 1) % this.eventLoops.length;
+            StockChannelConnection connection = new StockChannelConnection(this, eventLoop, channel);
+            this.connections.add(connection);
+            eventLoop.register(connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        for(StockChannelConnection connection : new LinkedList<>(this.connections)) {
+            connection.close();
+        }
+        for(StockEventLoop eventLoop : this.eventLoops) {
+            eventLoop.close();
+        }
+        this.changePublisher.close();
+        this.responseCache.close();
+        this.workerExecutor.shutdownNow();
+        try {
+            this.serverChannel.close();
+        } catch (IOException e) {
+            this.serverChannel = null;
+        }
+        this.acceptSelector.wakeup();
+    }
+
+    @Override
+    public void removeConnection(Connection connection) {
+        this.connections.remove(connection);
+        this.changePublisher.unsubscribe(connection);
+    }
+
+    @Override
+    public Set<StockChannelConnection> getConnections() {
+        return connections;
+    }
+
+    @Override
+    public Stock getStock() {
+        return stock;
+    }
+
+    @Override
+    public Executor getDatabaseExecutor() {
+        return Runnable::run;
+    }
+
+    @Override
+    public Executor getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    @Override
+    public PacketCompressor getCompressor() {
+        return compressor;
+    }
+
+    public void setCompressor(PacketCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    @Override
+    public ChangePublisher getChangePublisher() {
+        return changePublisher;
+    }
+
+}
@@ -1,24 +1,33 @@
 package com.mshevchenko.server;
 
+import com.mshevchenko.server_interfaces.Connection;
 import com.mshevchenko.server_interfaces.Sender;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class StockSender implements Sender {
 
-    private StockConnection connection;
+    private Connection connection;
     private OutputStream out;
 
-    public StockSender(StockConnection connection, OutputStream out) throws IOException {
+    public StockSender(Connection connection, OutputStream out) throws IOException {
         this.connection = connection;
         this.out = out;
     }
 
     @Override
-    public void send(byte[] packet) {
+    public synchronized void send(ByteBuffer packet) {
         try {
-            this.out.write(packet);
+            if(packet.hasArray()) {
+                this.out.write(packet.array(), packet.arrayOffset() + packet.position(), packet.remaining());
+            }
+            else {
+                byte[] bytes = new byte[packet.remaining()];
+                packet.get(bytes);
+                this.out.write(bytes);
+            }
         } catch (IOException e) {
             this.connection.close();
         }
@@ -1,36 +1,73 @@
 package com.mshevchenko.server;
 
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.server_interfaces.Connection;
+import com.mshevchenko.server_interfaces.Server;
 import com.mshevchenko.stock.Stock;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-public class StockServer implements Runnable {
+public class StockServer implements Server {
+
+    public enum ExecutionMode {
+        FIXED_POOL,
+        THREAD_PER_CONNECTION
+    }
 
     private int port;
     private ExecutorService executorService;
+    private ExecutorService databaseExecutor;
+    private ExecutorService workerExecutor;
     private Stock stock;
     private List<StockConnection> connections;
     private ServerSocket serverSocket;
+    private PacketCompressor compressor = new PacketCompressor(PacketCompressor.DEFAULT_THRESHOLD, PacketCompressor.DEFAULT_LEVEL);
+    private ResponseCache responseCache;
+    private ChangePublisher changePublisher;
 
     public StockServer(int port, Stock stock) throws IOException {
-        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        this.connections = new LinkedList<>();
+        this(port, stock, ExecutionMode.FIXED_POOL);
+    }
+
+    public StockServer(int port, Stock stock, ExecutionMode mode) throws IOException {
+        if(mode == ExecutionMode.THREAD_PER_CONNECTION) {
+            this.executorService = newThreadPerTaskExecutor();
+            this.databaseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        else {
+            this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        this.workerExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.connections = Collections.synchronizedList(new LinkedList<>());
         this.port = port;
         this.stock = stock;
+        this.responseCache = new ResponseCache(stock.getChangeLog());
+        this.changePublisher = new ChangePublisher(stock.getChangeLog());
         this.serverSocket = new ServerSocket(this.port);
     }
 
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
     @Override
     public void run() {
         while(!this.serverSocket.isClosed()) {
             try {
                 Socket clientSocket = this.serverSocket.accept();
+                clientSocket.setTcpNoDelay(true);
                 StockConnection connection = new StockConnection(this, clientSocket);
                 this.connections.add(connection);
                 this.executorService.execute(connection);
@@ -40,11 +77,22 @@ public class StockServer implements Runnable {
         }
     }
 
+    @Override
     public void close() {
-        for(StockConnection connection : this.connections) {
+        List<StockConnection> connections;
+        synchronized (this.connections) {
+            connections = new LinkedList<>(this.connections);
+        }
+        for(StockConnection connection : connections) {
             connection.close();
         }
+        this.changePublisher.close();
+        this.responseCache.close();
         this.executorService.shutdownNow();
+        this.workerExecutor.shutdownNow();
+        if(this.databaseExecutor != null) {
+            this.databaseExecutor.shutdownNow();
+        }
         try {
             this.serverSocket.close();
         } catch (IOException e) {
@@ -52,16 +100,52 @@ public class StockServer implements Runnable {
         }
     }
 
-    public void removeConnection(StockConnection connection) {
+    @Override
+    public void removeConnection(Connection connection) {
         this.connections.remove(connection);
+        this.changePublisher.unsubscribe(connection);
     }
 
+    @Override
     public List<StockConnection> getConnections() {
         return connections;
     }
 
+    @Override
     public Stock getStock() {
         return stock;
     }
 
+    @Override
+    public Executor getDatabaseExecutor() {
+        if(this.databaseExecutor == null) {
+            return Runnable::run;
+        }
+        return databaseExecutor;
+    }
+
+    @Override
+    public Executor getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    @Override
+    public PacketCompressor getCompressor() {
+        return compressor;
+    }
+
+    public void setCompressor(PacketCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    @Override
+    public ChangePublisher getChangePublisher() {
+        return changePublisher;
+    }
+
 }
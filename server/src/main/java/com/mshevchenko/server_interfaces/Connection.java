@@ -0,0 +1,13 @@
+package com.mshevchenko.server_interfaces;
+
+import com.mshevchenko.packet.PacketCodec;
+
+public interface Connection {
+
+    void close();
+
+    PacketCodec getCodec();
+
+    Sender getSender();
+
+}
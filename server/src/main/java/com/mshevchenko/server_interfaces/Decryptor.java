@@ -2,6 +2,10 @@ package com.mshevchenko.server_interfaces;
 
 public interface Decryptor {
 
-    void decrypt(byte[] packet);
+    default void decrypt(byte[] packet) {
+        decrypt(packet, 0, packet.length);
+    }
+
+    void decrypt(byte[] packet, int offset, int length);
 
 }
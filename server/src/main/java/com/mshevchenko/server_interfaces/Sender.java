@@ -1,7 +1,21 @@
 package com.mshevchenko.server_interfaces;
 
+import java.nio.ByteBuffer;
+
 public interface Sender {
 
-    void send(byte[] packet);
+    default void send(byte[] packet) {
+        send(ByteBuffer.wrap(packet));
+    }
+
+    void send(ByteBuffer packet);
+
+    default long getPendingBytes() {
+        return 0;
+    }
+
+    default boolean resumeWhenDrained(long limit, Runnable resume) {
+        return false;
+    }
 
 }
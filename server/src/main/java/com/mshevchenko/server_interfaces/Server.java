@@ -0,0 +1,31 @@
+package com.mshevchenko.server_interfaces;
+
+import com.mshevchenko.compression.PacketCompressor;
+import com.mshevchenko.server.ChangePublisher;
+import com.mshevchenko.server.ResponseCache;
+import com.mshevchenko.stock.Stock;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+public interface Server extends Runnable {
+
+    void close();
+
+    void removeConnection(Connection connection);
+
+    Collection<? extends Connection> getConnections();
+
+    Stock getStock();
+
+    Executor getDatabaseExecutor();
+
+    Executor getWorkerExecutor();
+
+    PacketCompressor getCompressor();
+
+    ResponseCache getResponseCache();
+
+    ChangePublisher getChangePublisher();
+
+}
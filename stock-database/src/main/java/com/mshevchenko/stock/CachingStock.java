@@ -0,0 +1,375 @@
+package com.mshevchenko.stock;
+
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.QuantityAdjustments;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+public class CachingStock extends Stock {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Object productLock = new Object();
+    private final Object groupLock = new Object();
+    private int capacity;
+    private LinkedHashMap<Integer, Product> products;
+    private LinkedHashMap<Integer, Group> groups;
+    private List<Group> groupsSnapshot;
+    private long productGeneration;
+    private long groupGeneration;
+    private LongAdder productHits = new LongAdder();
+    private LongAdder productMisses = new LongAdder();
+    private LongAdder productEvictions = new LongAdder();
+    private LongAdder groupHits = new LongAdder();
+    private LongAdder groupMisses = new LongAdder();
+    private LongAdder groupEvictions = new LongAdder();
+    private LongAdder snapshotHits = new LongAdder();
+    private LongAdder snapshotMisses = new LongAdder();
+
+    public CachingStock(String filename) throws SQLException, ClassNotFoundException {
+        this(filename, DEFAULT_CAPACITY);
+    }
+
+    public CachingStock(String filename, int capacity) throws SQLException, ClassNotFoundException {
+        super(filename);
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.products = lru(this.productEvictions);
+        this.groups = lru(this.groupEvictions);
+    }
+
+    private <T> LinkedHashMap<Integer, T> lru(LongAdder evictions) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                if(size() <= CachingStock.this.capacity) {
+                    return false;
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public Product getProductById(int id) {
+        long generation;
+        synchronized(this.productLock) {
+            Product product = this.products.get(id);
+            if(product != null) {
+                this.productHits.increment();
+                return copy(product);
+            }
+            this.productMisses.increment();
+            generation = this.productGeneration;
+        }
+        Product product = super.getProductById(id);
+        if(product != null) {
+            synchronized(this.productLock) {
+                if(generation == this.productGeneration) {
+                    this.products.put(id, copy(product));
+                }
+            }
+        }
+        return product;
+    }
+
+    @Override
+    public Group getGroupById(int id) {
+        long generation;
+        synchronized(this.groupLock) {
+            Group group = this.groups.get(id);
+            if(group != null) {
+                this.groupHits.increment();
+                return copy(group);
+            }
+            this.groupMisses.increment();
+            generation = this.groupGeneration;
+        }
+        Group group = super.getGroupById(id);
+        if(group != null) {
+            synchronized(this.groupLock) {
+                if(generation == this.groupGeneration) {
+                    this.groups.put(id, copy(group));
+                }
+            }
+        }
+        return group;
+    }
+
+    @Override
+    public List<Group> getGroups() {
+        long generation;
+        synchronized(this.groupLock) {
+            if(this.groupsSnapshot != null) {
+                this.snapshotHits.increment();
+                return copy(this.groupsSnapshot);
+            }
+            this.snapshotMisses.increment();
+            generation = this.groupGeneration;
+        }
+        List<Group> groups = super.getGroups();
+        synchronized(this.groupLock) {
+            if(generation == this.groupGeneration) {
+                this.groupsSnapshot = copy(groups);
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    public synchronized int insertGroup(Group group) {
+        int result = super.insertGroup(group);
+        invalidateGroupsSnapshot();
+        return result;
+    }
+
+    @Override
+    public synchronized int[] insertGroups(List<Group> groups, int chunkSize) {
+        int[] result = super.insertGroups(groups, chunkSize);
+        invalidateGroupsSnapshot();
+        return result;
+    }
+
+    @Override
+    public synchronized int updateGroup(Group group) {
+        int result = super.updateGroup(group);
+        invalidateGroups(Set.of(group.getGroupId()));
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteGroup(Group group) {
+        int result = super.deleteGroup(group);
+        invalidateGroups(Set.of(group.getGroupId()));
+        invalidateGroupProducts(Set.of(group.getGroupId()));
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteGroupById(int id) {
+        int result = super.deleteGroupById(id);
+        invalidateGroups(Set.of(id));
+        invalidateGroupProducts(Set.of(id));
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteGroupsByIds(int[] ids) {
+        int result = super.deleteGroupsByIds(ids);
+        Set<Integer> groupIds = Arrays.stream(ids).boxed().collect(Collectors.toSet());
+        invalidateGroups(groupIds);
+        invalidateGroupProducts(groupIds);
+        return result;
+    }
+
+    @Override
+    public synchronized int updateProduct(Product product) {
+        int result = super.updateProduct(product);
+        invalidateProduct(product.getProductId());
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteProduct(Product product) {
+        int result = super.deleteProduct(product);
+        invalidateProduct(product.getProductId());
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteProductById(int id) {
+        int result = super.deleteProductById(id);
+        invalidateProduct(id);
+        return result;
+    }
+
+    @Override
+    public synchronized int deleteProductsByIds(int[] ids) {
+        int result = super.deleteProductsByIds(ids);
+        invalidateProducts(ids);
+        return result;
+    }
+
+    @Override
+    public synchronized int increaseProductQuantity(int id, int value) {
+        int result = super.increaseProductQuantity(id, value);
+        invalidateProduct(id);
+        return result;
+    }
+
+    @Override
+    public synchronized int increaseProductsQuantity(int[] ids, int value) {
+        int result = super.increaseProductsQuantity(ids, value);
+        invalidateProducts(ids);
+        return result;
+    }
+
+    @Override
+    public synchronized int decreaseProductQuantity(int id, int value) {
+        int result = super.decreaseProductQuantity(id, value);
+        invalidateProduct(id);
+        return result;
+    }
+
+    @Override
+    public synchronized Map<Integer, Integer> adjustProductsQuantity(Map<Integer, Integer> deltas) throws SQLException {
+        Map<Integer, Integer> results = super.adjustProductsQuantity(deltas);
+        invalidateProducts(results.entrySet().stream()
+                .filter(result -> result.getValue() == QuantityAdjustments.ADJUSTED)
+                .mapToInt(Map.Entry::getKey)
+                .toArray());
+        return results;
+    }
+
+    @Override
+    public synchronized Map<Integer, Integer> pickOrder(Map<Integer, Integer> lines) throws SQLException {
+        Map<Integer, Integer> failures = super.pickOrder(lines);
+        if(failures.isEmpty()) {
+            invalidateProducts(lines.keySet().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return failures;
+    }
+
+    private void invalidateProduct(int id) {
+        synchronized(this.productLock) {
+            this.productGeneration++;
+            this.products.remove(id);
+        }
+    }
+
+    private void invalidateProducts(int[] ids) {
+        synchronized(this.productLock) {
+            this.productGeneration++;
+            for(int id : ids) {
+                this.products.remove(id);
+            }
+        }
+    }
+
+    private void invalidateGroupsSnapshot() {
+        synchronized(this.groupLock) {
+            this.groupGeneration++;
+            this.groupsSnapshot = null;
+        }
+    }
+
+    private void invalidateGroups(Set<Integer> ids) {
+        synchronized(this.groupLock) {
+            this.groupGeneration++;
+            this.groupsSnapshot = null;
+            this.groups.keySet().removeAll(ids);
+        }
+    }
+
+    private void invalidateGroupProducts(Set<Integer> ids) {
+        synchronized(this.productLock) {
+            this.productGeneration++;
+            this.products.values().removeIf(product -> ids.contains(product.getGroupId()));
+        }
+    }
+
+    public void clearCache() {
+        synchronized(this.groupLock) {
+            this.groupGeneration++;
+            this.groupsSnapshot = null;
+            this.groups.clear();
+        }
+        synchronized(this.productLock) {
+            this.productGeneration++;
+            this.products.clear();
+        }
+    }
+
+    private static Product copy(Product product) {
+        return new Product(product.getProductId(), product.getGroupId(), product.getName(), product.getDescription(),
+                product.getProducer(), product.getPrice(), product.getQuantity(), product.getVersion());
+    }
+
+    private static Group copy(Group group) {
+        return new Group(group.getGroupId(), group.getName(), group.getDescription(), group.getVersion());
+    }
+
+    private static List<Group> copy(List<Group> groups) {
+        List<Group> copies = new LinkedList<>();
+        for(Group group : groups) {
+            copies.add(copy(group));
+        }
+        return copies;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getCachedProducts() {
+        synchronized(this.productLock) {
+            return this.products.size();
+        }
+    }
+
+    public int getCachedGroups() {
+        synchronized(this.groupLock) {
+            return this.groups.size();
+        }
+    }
+
+    public long getProductHits() {
+        return this.productHits.sum();
+    }
+
+    public long getProductMisses() {
+        return this.productMisses.sum();
+    }
+
+    public long getProductEvictions() {
+        return this.productEvictions.sum();
+    }
+
+    public long getGroupHits() {
+        return this.groupHits.sum();
+    }
+
+    public long getGroupMisses() {
+        return this.groupMisses.sum();
+    }
+
+    public long getGroupEvictions() {
+        return this.groupEvictions.sum();
+    }
+
+    public long getGroupsSnapshotHits() {
+        return this.snapshotHits.sum();
+    }
+
+    public long getGroupsSnapshotMisses() {
+        return this.snapshotMisses.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = getProductHits() + getGroupHits() + getGroupsSnapshotHits();
+        long total = hits + getProductMisses() + getGroupMisses() + getGroupsSnapshotMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public String getCacheStats() {
+        return String.format("cache capacity=%d hitRatio=%.3f products size=%d hits=%d misses=%d evictions=%d " +
+                        "groups size=%d hits=%d misses=%d evictions=%d snapshot hits=%d misses=%d",
+                this.capacity, getHitRatio(),
+                getCachedProducts(), getProductHits(), getProductMisses(), getProductEvictions(),
+                getCachedGroups(), getGroupHits(), getGroupMisses(), getGroupEvictions(),
+                getGroupsSnapshotHits(), getGroupsSnapshotMisses());
+    }
+
+}
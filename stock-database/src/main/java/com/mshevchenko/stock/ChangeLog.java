@@ -0,0 +1,108 @@
+package com.mshevchenko.stock;
+
+import com.mshevchenko.stock_objects.Change;
+import com.mshevchenko.stock_objects.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ChangeLog {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final Change[] changes;
+    private int head;
+    private int size;
+    private long revision;
+    private long truncated;
+    private List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public ChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeLog(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        this.changes = new Change[capacity];
+        this.revision = System.currentTimeMillis() * 1000;
+    }
+
+    public synchronized void append(List<Change> changes) {
+        for(Change change : changes) {
+            change.setRevision(++this.revision);
+            this.changes[(this.head + this.size) % this.changes.length] = change;
+            if(this.size < this.changes.length) {
+                this.size++;
+            }
+            else {
+                this.head = (this.head + 1) % this.changes.length;
+                this.truncated++;
+            }
+        }
+        if(!changes.isEmpty()) {
+            for(Runnable listener : this.listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(this.changes, null);
+        this.truncated += this.size;
+        this.head = 0;
+        this.size = 0;
+        this.revision++;
+        for(Runnable listener : this.listeners) {
+            listener.run();
+        }
+    }
+
+    public void addListener(Runnable listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        this.listeners.remove(listener);
+    }
+
+    public synchronized ChangeSet getChangesSince(long revision) {
+        long oldest = this.revision - this.size + 1;
+        if(revision > this.revision || revision < oldest - 1) {
+            return new ChangeSet(this.revision, true, Collections.emptyList());
+        }
+        int count = (int) (this.revision - revision);
+        List<Change> changes = new ArrayList<>(count);
+        for(int i = this.size - count; i < this.size; i++) {
+            changes.add(this.changes[(this.head + i) % this.changes.length]);
+        }
+        return new ChangeSet(this.revision, false, changes);
+    }
+
+    public synchronized long getRevision() {
+        return this.revision;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.changes.length;
+    }
+
+    public synchronized long getTruncated() {
+        return this.truncated;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("changes size=%d capacity=%d revision=%d truncated=%d",
+                this.size, this.changes.length, this.revision, this.truncated);
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.mshevchenko.stock;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FilterQuery {
+
+    private static final Map<String, String> SQL_CACHE = new ConcurrentHashMap<>();
+
+    private String select;
+    private StringBuilder shape;
+    private List<String> columns = new ArrayList<>();
+    private List<String> operators = new ArrayList<>();
+    private List<Object> values = new ArrayList<>();
+    private List<String> order = new ArrayList<>();
+    private int limit;
+
+    public FilterQuery(String select) {
+        this.select = select;
+        this.shape = new StringBuilder(select);
+    }
+
+    public FilterQuery equal(String column, int value) {
+        return add(column, "=", value);
+    }
+
+    public FilterQuery equal(String column, double value) {
+        return add(column, "=", value);
+    }
+
+    public FilterQuery greaterThan(String column, int value) {
+        return add(column, ">", value);
+    }
+
+    public FilterQuery greaterOrEqual(String column, double value) {
+        return add(column, ">=", value);
+    }
+
+    public FilterQuery lessOrEqual(String column, double value) {
+        return add(column, "<=", value);
+    }
+
+    public FilterQuery like(String column, String value) {
+        return add(column, "LIKE", value);
+    }
+
+    public FilterQuery equalIfSet(String column, int value) {
+        return value > 0 ? equal(column, value) : this;
+    }
+
+    public FilterQuery equalIfSet(String column, double value) {
+        return value > 0 ? equal(column, value) : this;
+    }
+
+    public FilterQuery likeIfSet(String column, String value) {
+        return value != null && !value.isEmpty() ? like(column, value) : this;
+    }
+
+    public FilterQuery orderBy(String column, boolean descending) {
+        String term = descending ? column + " DESC" : column;
+        this.order.add(term);
+        this.shape.append("|order ").append(term);
+        return this;
+    }
+
+    public FilterQuery limit(int limit) {
+        if(this.limit == 0) {
+            this.shape.append("|limit");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    private FilterQuery add(String column, String operator, Object value) {
+        if(!this.order.isEmpty() || this.limit != 0) {
+            throw new IllegalStateException("predicates must precede orderBy and limit");
+        }
+        this.columns.add(column);
+        this.operators.add(operator);
+        this.values.add(value);
+        this.shape.append('|').append(column).append(' ').append(operator);
+        return this;
+    }
+
+    public String getSql() {
+        return SQL_CACHE.computeIfAbsent(this.shape.toString(), shape -> buildSql());
+    }
+
+    private String buildSql() {
+        StringBuilder sql = new StringBuilder(this.select);
+        for(int i = 0; i < this.columns.size(); i++) {
+            sql.append(i == 0 ? "\nWHERE " : "\nAND ")
+                    .append(this.columns.get(i)).append(' ')
+                    .append(this.operators.get(i)).append(" ?");
+        }
+        for(int i = 0; i < this.order.size(); i++) {
+            sql.append(i == 0 ? "\nORDER BY " : ", ").append(this.order.get(i));
+        }
+        if(this.limit != 0) {
+            sql.append("\nLIMIT ?");
+        }
+        return sql.append(";\n").toString();
+    }
+
+    public void bind(PreparedStatement statement) throws SQLException {
+        for(int i = 0; i < this.values.size(); i++) {
+            Object value = this.values.get(i);
+            if(value instanceof Integer) {
+                statement.setInt(i + 1, (Integer) value);
+            }
+            else if(value instanceof Double) {
+                statement.setDouble(i + 1, (Double) value);
+            }
+            else {
+                statement.setString(i + 1, (String) value);
+            }
+        }
+        if(this.limit != 0) {
+            statement.setInt(this.values.size() + 1, this.limit);
+        }
+    }
+
+    public int getPredicateCount() {
+        return this.columns.size();
+    }
+
+    public static int getCachedShapes() {
+        return SQL_CACHE.size();
+    }
+
+}
@@ -2,25 +2,93 @@ package com.mshevchenko.stock;
 
 
 
+import com.mshevchenko.stock_objects.Change;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.GroupTotals;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
 import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.QuantityAdjustments;
+import com.mshevchenko.stock_objects.SortSpec;
 
 import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 public class Stock {
 
-    private Connection connection;
+    public static final int DEFAULT_READERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int VERSION_CONFLICT = -1;
+    public static int BATCH_CHUNK_SIZE = 500;
+    public static int CHANGE_LOG_CAPACITY = ChangeLog.DEFAULT_CAPACITY;
+
+    private static final String ADD_TOTALS =
+            "UPDATE group_totals\n" +
+                "SET item_count = item_count + 1,\n" +
+                "total_quantity = total_quantity + NEW.quantity,\n" +
+                "total_value = total_value + NEW.price * NEW.quantity\n" +
+                "WHERE group_id = NEW.group_id;\n";
+
+    private static final String SUBTRACT_TOTALS =
+            "UPDATE group_totals\n" +
+                "SET item_count = item_count - 1,\n" +
+                "total_quantity = total_quantity - OLD.quantity,\n" +
+                "total_value = total_value - OLD.price * OLD.quantity\n" +
+                "WHERE group_id = OLD.group_id;\n";
+
+    private static final String SELECT_GROUPS =
+            "SELECT group_id, group_name, group_description, version\n" +
+                "FROM groups\n";
+
+    private static final String SELECT_PRODUCTS =
+            "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
+                "FROM products\n";
+
+    private static final String COMPUTE_TOTALS =
+            "SELECT groups.group_id, COUNT(product_id), IFNULL(SUM(quantity), 0), IFNULL(SUM(price * quantity), 0)\n" +
+                "FROM groups\n" +
+                "LEFT JOIN products ON products.group_id = groups.group_id\n" +
+                "GROUP BY groups.group_id";
+
+    private Connection writer;
+    private List<Connection> readerConnections;
+    private BlockingQueue<Connection> readers;
+    private int readerCount;
+    private Map<Connection, StatementCache> statementCaches;
+    private int statementCacheCapacity;
     private String filename;
+    private ChangeLog changeLog;
 
     public Stock() throws SQLException, ClassNotFoundException {
         this("stock-database/src/main/resources/stock.db");
     }
 
     public Stock(String filename) throws SQLException, ClassNotFoundException {
+        this(filename, DEFAULT_READERS);
+    }
+
+    public Stock(String filename, int readerCount) throws SQLException, ClassNotFoundException {
+        this(filename, readerCount, StatementCache.DEFAULT_CAPACITY);
+    }
+
+    public Stock(String filename, int readerCount, int statementCacheCapacity) throws SQLException, ClassNotFoundException {
         this.filename = filename;
+        this.readerCount = Math.max(1, readerCount);
+        this.statementCacheCapacity = statementCacheCapacity;
+        this.changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
         createDirectories(this.filename);
         init();
     }
@@ -35,15 +103,44 @@ public class Stock {
 
     private void init() throws ClassNotFoundException, SQLException {
         Class.forName("org.sqlite.JDBC");
-        this.connection = DriverManager.getConnection("jdbc:sqlite:" + this.filename);
+        this.writer = DriverManager.getConnection("jdbc:sqlite:" + this.filename);
+        setWriteAheadLogOn();
         setForeignKeysOn();
         createGroupsTable();
         createProductsTable();
+        createGroupTotalsTable();
+        this.statementCaches = new IdentityHashMap<>();
+        this.statementCaches.put(this.writer, new StatementCache(this.writer, this.statementCacheCapacity));
+        this.readerConnections = new ArrayList<>(this.readerCount);
+        this.readers = new ArrayBlockingQueue<>(this.readerCount);
+        for(int i = 0; i < this.readerCount; i++) {
+            Connection reader = DriverManager.getConnection("jdbc:sqlite:" + this.filename);
+            Statement statement = reader.createStatement();
+            statement.execute("PRAGMA busy_timeout = 5000");
+            statement.execute("PRAGMA query_only = true");
+            statement.close();
+            this.readerConnections.add(reader);
+            this.statementCaches.put(reader, new StatementCache(reader, this.statementCacheCapacity));
+            this.readers.add(reader);
+        }
+    }
+
+    private void setWriteAheadLogOn() {
+        try {
+            Statement statement = this.writer.createStatement();
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = NORMAL");
+            statement.execute("PRAGMA busy_timeout = 5000");
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Can't set write-ahead log on!");
+            //e.printStackTrace();
+        }
     }
 
     private void setForeignKeysOn() {
         try {
-            Statement statement = connection.createStatement();
+            Statement statement = this.writer.createStatement();
             statement.execute("PRAGMA foreign_keys = ON");
             statement.close();
         } catch (SQLException e) {
@@ -52,16 +149,67 @@ public class Stock {
         }
     }
 
+    private Connection acquireReader() throws SQLException {
+        try {
+            return this.readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a reader connection");
+        }
+    }
+
+    private void releaseReader(Connection connection) {
+        if(connection != null) {
+            this.readers.add(connection);
+        }
+    }
+
+    private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        return this.statementCaches.get(connection).prepare(sql);
+    }
+
+    public long getStatementCacheHits() {
+        long hits = 0;
+        for(StatementCache cache : this.statementCaches.values()) {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+
+    public long getStatementCacheMisses() {
+        long misses = 0;
+        for(StatementCache cache : this.statementCaches.values()) {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+
+    public long getStatementCacheEvictions() {
+        long evictions = 0;
+        for(StatementCache cache : this.statementCaches.values()) {
+            evictions += cache.getEvictions();
+        }
+        return evictions;
+    }
+
+    public String getStatementCacheStats() {
+        return String.format("statements connections=%d capacity=%d hits=%d misses=%d evictions=%d",
+                this.statementCaches.size(), this.statementCacheCapacity,
+                getStatementCacheHits(), getStatementCacheMisses(), getStatementCacheEvictions());
+    }
+
     private void createGroupsTable() {
         try {
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = this.writer.prepareStatement(
                     "CREATE TABLE IF NOT EXISTS groups (\n" +
                         "group_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
                         "group_name TEXT NOT NULL UNIQUE,\n" +
-                        "group_description TEXT\n" +
+                        "group_description TEXT,\n" +
+                        "version INTEGER NOT NULL DEFAULT 1\n" +
                         ");\n");
             statement.executeUpdate();
             statement.close();
+            addVersionColumn("groups");
         } catch (SQLException e) {
             //System.out.println("groups table was not created!");
             //e.printStackTrace();
@@ -70,7 +218,7 @@ public class Stock {
 
     private void createProductsTable() {
         try {
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = this.writer.prepareStatement(
                         "CREATE TABLE IF NOT EXISTS products (\n" +
                             "product_id INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
                             "group_id INTEGER NOT NULL,\n" +
@@ -79,6 +227,7 @@ public class Stock {
                             "producer TEXT,\n" +
                             "price DOUBLE DEFAULT 0,\n" +
                             "quantity INTEGER DEFAULT 0,\n" +
+                            "version INTEGER NOT NULL DEFAULT 1,\n" +
                             "FOREIGN KEY (group_id)\n" +
                             "REFERENCES groups (group_id)\n" +
                             "ON DELETE CASCADE\n" +
@@ -86,33 +235,116 @@ public class Stock {
                             ");\n");
             statement.executeUpdate();
             statement.close();
+            addVersionColumn("products");
+            Statement indexes = this.writer.createStatement();
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_group_id ON products (group_id);");
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_name_nocase ON products (product_name COLLATE NOCASE);");
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_producer ON products (producer COLLATE NOCASE);");
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_price ON products (price);");
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_quantity ON products (quantity);");
+            indexes.execute("CREATE INDEX IF NOT EXISTS products_group_price ON products (group_id, price);");
+            indexes.close();
         } catch (SQLException e) {
             //System.out.println("products table was not created!");
             //e.printStackTrace();
         }
     }
 
-    public int insertGroup(Group group) {
+    private void addVersionColumn(String table) throws SQLException {
+        Statement statement = this.writer.createStatement();
+        ResultSet res = statement.executeQuery("PRAGMA table_info(" + table + ");");
+        boolean exists = false;
+        while(res.next()) {
+            if(res.getString("name").equals("version")) {
+                exists = true;
+            }
+        }
+        res.close();
+        if(!exists) {
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN version INTEGER NOT NULL DEFAULT 1;");
+        }
+        statement.close();
+    }
+
+    private void createGroupTotalsTable() {
+        try {
+            Statement statement = this.writer.createStatement();
+            ResultSet res = statement.executeQuery(
+                    "SELECT name FROM sqlite_master\n" +
+                        "WHERE type = 'table' AND name = 'group_totals';\n");
+            boolean exists = res.next();
+            res.close();
+            statement.execute(
+                    "CREATE TABLE IF NOT EXISTS group_totals (\n" +
+                        "group_id INTEGER PRIMARY KEY,\n" +
+                        "item_count INTEGER NOT NULL DEFAULT 0,\n" +
+                        "total_quantity INTEGER NOT NULL DEFAULT 0,\n" +
+                        "total_value DOUBLE NOT NULL DEFAULT 0\n" +
+                        ");\n");
+            statement.execute(
+                    "CREATE TRIGGER IF NOT EXISTS groups_totals_insert AFTER INSERT ON groups\n" +
+                        "BEGIN\n" +
+                        "INSERT OR IGNORE INTO group_totals (group_id) VALUES (NEW.group_id);\n" +
+                        "END;\n");
+            statement.execute(
+                    "CREATE TRIGGER IF NOT EXISTS groups_totals_delete AFTER DELETE ON groups\n" +
+                        "BEGIN\n" +
+                        "DELETE FROM group_totals WHERE group_id = OLD.group_id;\n" +
+                        "END;\n");
+            statement.execute(
+                    "CREATE TRIGGER IF NOT EXISTS products_totals_insert AFTER INSERT ON products\n" +
+                        "BEGIN\n" +
+                        ADD_TOTALS +
+                        "END;\n");
+            statement.execute(
+                    "CREATE TRIGGER IF NOT EXISTS products_totals_delete AFTER DELETE ON products\n" +
+                        "BEGIN\n" +
+                        SUBTRACT_TOTALS +
+                        "END;\n");
+            statement.execute(
+                    "CREATE TRIGGER IF NOT EXISTS products_totals_update AFTER UPDATE OF group_id, price, quantity ON products\n" +
+                        "BEGIN\n" +
+                        SUBTRACT_TOTALS +
+                        ADD_TOTALS +
+                        "END;\n");
+            if(!exists) {
+                statement.execute("DELETE FROM group_totals;");
+                statement.execute(
+                        "INSERT INTO group_totals (group_id, item_count, total_quantity, total_value)\n" +
+                            COMPUTE_TOTALS + ";\n");
+            }
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Can't create group totals!");
+            //e.printStackTrace();
+        }
+    }
+
+    public synchronized int insertGroup(Group group) {
         int result = 0;
+        int lastId = lastId("groups", "group_id");
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "INSERT INTO groups (group_name, group_description)\n" +
                             "VALUES(?, ?);\n");
             statement.setString(1, group.getName());
             statement.setString(2, group.getDescription());
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("group was not inserted!");
             //e.printStackTrace();
         }
+        if(result > 0) {
+            logInsertedGroups(lastId);
+        }
         return result;
     }
 
-    public int insertProduct(Product product) {
+    public synchronized int insertProduct(Product product) {
         int result = 0;
+        int lastId = lastId("products", "product_id");
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "INSERT INTO products (group_id, product_name, product_description, producer, price, quantity)\n" +
                         "VALUES(?, ?, ?, ?, ?, ?);\n");
             statement.setInt(1, product.getGroupId());
@@ -122,58 +354,180 @@ public class Stock {
             statement.setDouble(5, product.getPrice());
             statement.setInt(6, product.getQuantity());
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("product was not inserted!");
             //e.printStackTrace();
         }
+        if(result > 0) {
+            logInsertedProducts(lastId);
+        }
         return result;
     }
 
-    public int deleteGroup(Group group) {
+    public int[] insertGroups(List<Group> groups) {
+        return insertGroups(groups, BATCH_CHUNK_SIZE);
+    }
+
+    public synchronized int[] insertGroups(List<Group> groups, int chunkSize) {
+        int lastId = lastId("groups", "group_id");
+        int[] results;
+        try {
+            results = executeBatch(
+                    "INSERT INTO groups (group_name, group_description)\n" +
+                        "VALUES(?, ?);\n", groups, chunkSize, (statement, group) -> {
+                        statement.setString(1, group.getName());
+                        statement.setString(2, group.getDescription());
+                    });
+        } catch (SQLException e) {
+            //System.out.println("batch was not executed!");
+            results = new int[groups.size()];
+        }
+        logInsertedGroups(lastId);
+        return results;
+    }
+
+    public int[] insertProducts(List<Product> products) {
+        return insertProducts(products, BATCH_CHUNK_SIZE);
+    }
+
+    public synchronized int[] insertProducts(List<Product> products, int chunkSize) {
+        int lastId = lastId("products", "product_id");
+        int[] results;
+        try {
+            results = executeBatch(
+                    "INSERT INTO products (group_id, product_name, product_description, producer, price, quantity)\n" +
+                        "VALUES(?, ?, ?, ?, ?, ?);\n", products, chunkSize, (statement, product) -> {
+                        statement.setInt(1, product.getGroupId());
+                        statement.setString(2, product.getName());
+                        statement.setString(3, product.getDescription());
+                        statement.setString(4, product.getProducer());
+                        statement.setDouble(5, product.getPrice());
+                        statement.setInt(6, product.getQuantity());
+                    });
+        } catch (SQLException e) {
+            //System.out.println("batch was not executed!");
+            results = new int[products.size()];
+        }
+        logInsertedProducts(lastId);
+        return results;
+    }
+
+    private interface RowBinder<T> {
+        void bind(PreparedStatement statement, T value) throws SQLException;
+    }
+
+    private <T> int[] executeBatch(String sql, List<T> values, int chunkSize, RowBinder<T> binder) throws SQLException {
+        int[] results = new int[values.size()];
+        if(values.isEmpty()) {
+            return results;
+        }
+        chunkSize = Math.max(1, chunkSize);
+        this.writer.setAutoCommit(false);
+        try {
+            PreparedStatement statement = prepare(this.writer, sql);
+            try {
+                for(int start = 0; start < values.size(); start += chunkSize) {
+                    int end = Math.min(start + chunkSize, values.size());
+                    Savepoint savepoint = this.writer.setSavepoint();
+                    try {
+                        for(int i = start; i < end; i++) {
+                            binder.bind(statement, values.get(i));
+                            statement.addBatch();
+                        }
+                        int[] counts = statement.executeBatch();
+                        for(int i = start; i < end; i++) {
+                            results[i] = counts[i - start] > 0 ? 1 : 0;
+                        }
+                        this.writer.releaseSavepoint(savepoint);
+                    } catch (SQLException e) {
+                        statement.clearBatch();
+                        this.writer.rollback(savepoint);
+                        for(int i = start; i < end; i++) {
+                            try {
+                                binder.bind(statement, values.get(i));
+                                results[i] = statement.executeUpdate() > 0 ? 1 : 0;
+                            } catch (SQLException rowException) {
+                                results[i] = 0;
+                            }
+                        }
+                        this.writer.releaseSavepoint(savepoint);
+                    }
+                }
+                this.writer.commit();
+            } catch (SQLException | RuntimeException e) {
+                statement.clearBatch();
+                this.writer.rollback();
+                throw e;
+            }
+        } finally {
+            try {
+                this.writer.setAutoCommit(true);
+            } catch (SQLException e) {
+                //e.printStackTrace();
+            }
+        }
+        return results;
+    }
+
+    public synchronized int deleteGroup(Group group) {
         int result = 0;
+        List<Change> changes = groupDeletes(new int[] {group.getGroupId()});
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "DELETE FROM groups\n" +
                             "WHERE group_id = ?;\n");
             statement.setInt(1, group.getGroupId());
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("group was not deleted!");
             //e.printStackTrace();
         }
+        if(result > 0) {
+            logChanges(changes);
+        }
         return result;
     }
 
-    public int deleteProduct(Product product) {
+    public synchronized int deleteProduct(Product product) {
         int result = 0;
+        List<Change> changes = productDeletes(new int[] {product.getProductId()});
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "DELETE FROM products\n" +
                             "WHERE product_id = ?;\n");
             statement.setInt(1, product.getProductId());
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("product was not deleted!");
         }
+        if(result > 0) {
+            logChanges(changes);
+        }
         return result;
     }
 
-    public int updateGroup(Group group) {
+    public synchronized int updateGroup(Group group) {
         int result = 0;
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "UPDATE groups\n" +
                             "SET group_name = ?,\n" +
-                            "group_description = ?\n" +
-                            "WHERE group_id = ?;\n");
+                            "group_description = ?,\n" +
+                            "version = version + 1\n" +
+                            "WHERE group_id = ?" + (group.getVersion() > 0 ? " AND version = ?;\n" : ";\n"));
             statement.setString(1, group.getName());
             statement.setString(2, group.getDescription());
             statement.setInt(3, group.getGroupId());
+            if(group.getVersion() > 0) {
+                statement.setInt(4, group.getVersion());
+            }
             result = statement.executeUpdate();
-            statement.close();
+            if(result == 0 && group.getVersion() > 0 && groupExists(group.getGroupId())) {
+                result = VERSION_CONFLICT;
+            }
+            if(result > 0) {
+                logUpdatedGroup(group.getGroupId());
+            }
         }catch (SQLException e){
             //System.out.println("group was not updated!");
             //e.printStackTrace();
@@ -181,18 +535,19 @@ public class Stock {
         return result;
     }
 
-    public int updateProduct(Product product) {
+    public synchronized int updateProduct(Product product) {
         int result = 0;
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "UPDATE products\n" +
                             "SET group_id = ?,\n" +
                             "product_name = ?,\n" +
                             "product_description = ?,\n" +
                             "producer = ?,\n" +
                             "price = ?,\n" +
-                            "quantity = ?\n" +
-                            "WHERE product_id = ?;\n");
+                            "quantity = ?,\n" +
+                            "version = version + 1\n" +
+                            "WHERE product_id = ?" + (product.getVersion() > 0 ? " AND version = ?;\n" : ";\n"));
             statement.setInt(1, product.getGroupId());
             statement.setString(2, product.getName());
             statement.setString(3, product.getDescription());
@@ -200,8 +555,16 @@ public class Stock {
             statement.setDouble(5, product.getPrice());
             statement.setInt(6, product.getQuantity());
             statement.setInt(7, product.getProductId());
+            if(product.getVersion() > 0) {
+                statement.setInt(8, product.getVersion());
+            }
             result = statement.executeUpdate();
-            statement.close();
+            if(result == 0 && product.getVersion() > 0 && productExists(product.getProductId())) {
+                result = VERSION_CONFLICT;
+            }
+            if(result > 0) {
+                logUpdatedProduct(product.getProductId());
+            }
         }catch (SQLException e){
             //System.out.println("product was not updated!");
             //e.printStackTrace();
@@ -211,253 +574,204 @@ public class Stock {
 
     public List<Group> getGroups() {
         List<Group> groups = new LinkedList<>();
+        Connection connection = null;
         try {
-            Statement statement  = this.connection.createStatement();
-            ResultSet res = statement.executeQuery(
-                    "SELECT group_id, group_name, group_description\n" +
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
+                    "SELECT group_id, group_name, group_description, version\n" +
                         "FROM groups;\n");
+            ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int groupId = res.getInt("group_id");
-                String name = res.getString("group_name");
-                String description = res.getString("group_description");
-                groups.add(new Group(groupId, name, description));
+                groups.add(readGroup(res));
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get groups!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
         return groups;
     }
 
     public List<Product> getProducts() {
         List<Product> products = new LinkedList<>();
+        getProducts(products::add);
+        return products;
+    }
+
+    public int getProducts(Consumer<Product> consumer) {
+        int count = 0;
+        Connection connection = null;
         try {
-            Statement statement  = this.connection.createStatement();
-            ResultSet res = statement.executeQuery(
-                        "SELECT product_id, group_id, product_name, product_description, producer, price, quantity\n" +
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
+                        "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
                             "FROM products;\n");
+            ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int productId = res.getInt("product_id");
-                int groupId = res.getInt("group_id");
-                String name = res.getString("product_name");
-                String description = res.getString("product_description");
-                String producer = res.getString("producer");
-                double price = res.getDouble("price");
-                int quantity = res.getInt("quantity");
-                products.add(new Product(productId, groupId, name, description, producer, price, quantity));
+                consumer.accept(readProduct(res));
+                count++;
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get products!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
-        return products;
+        return count;
     }
 
     public List<Group> getGroupsByFilter(Group group) {
         List<Group> groups = new LinkedList<>();
+        Connection connection = null;
         try {
-            PreparedStatement statement  = this.connection.prepareStatement(
-                    "SELECT group_id, group_name, group_description\n" +
-                        "FROM groups\n" +
-                        "WHERE group_id LIKE ?\n" +
-                        "AND group_name LIKE ?\n" +
-                        "AND group_description LIKE ?;\n");
-            if(group.getGroupId() > 0) {
-                statement.setInt(1, group.getGroupId());
-            }
-            else {
-                statement.setString(1, "%");
-            }
-            if(group.getName() != null && !group.getName().isEmpty()) {
-                statement.setString(2, group.getName());
-            }
-            else {
-                statement.setString(2, "%");
-            }
-            if(group.getDescription() != null && !group.getDescription().isEmpty()) {
-                statement.setString(3, group.getDescription());
-            }
-            else {
-                statement.setString(3, "%");
-            }
+            connection = acquireReader();
+            FilterQuery query = new FilterQuery(
+                    "SELECT group_id, group_name, group_description, version\n" +
+                        "FROM groups")
+                    .equalIfSet("group_id", group.getGroupId())
+                    .likeIfSet("group_name", group.getName())
+                    .likeIfSet("group_description", group.getDescription());
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
             ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int groupId = res.getInt("group_id");
-                String name = res.getString("group_name");
-                String description = res.getString("group_description");
-                groups.add(new Group(groupId, name, description));
+                groups.add(readGroup(res));
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get groups by filter!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
         return groups;
     }
 
     public List<Product> getProductsByFilter(Product product) {
         List<Product> products = new LinkedList<>();
+        getProductsByFilter(product, products::add);
+        return products;
+    }
+
+    public int getProductsByFilter(Product product, Consumer<Product> consumer) {
+        int count = 0;
+        Connection connection = null;
         try {
-            PreparedStatement statement  = this.connection.prepareStatement(
-                    "SELECT product_id, group_id, product_name, product_description, producer, price, quantity\n" +
-                        "FROM products\n" +
-                        "WHERE product_id LIKE ?\n" +
-                        "AND group_id LIKE ?\n" +
-                        "AND product_name LIKE ?\n" +
-                        "AND product_description LIKE ?\n" +
-                        "AND producer LIKE ?\n" +
-                        "AND price LIKE ?\n" +
-                        "AND quantity LIKE ?;\n");
-            if(product.getProductId() > 0) {
-                statement.setInt(1, product.getProductId());
-            }
-            else {
-                statement.setString(1, "%");
-            }
-            if(product.getGroupId() > 0) {
-                statement.setInt(2, product.getGroupId());
-            }
-            else {
-                statement.setString(2, "%");
-            }
-            if(product.getName() != null && !product.getName().isEmpty()) {
-                statement.setString(3, product.getName());
-            }
-            else {
-                statement.setString(3, "%");
-            }
-            if(product.getDescription() != null && !product.getDescription().isEmpty()) {
-                statement.setString(4, product.getDescription());
-            }
-            else {
-                statement.setString(4, "%");
-            }
-            if(product.getProducer() != null && !product.getProducer().isEmpty()) {
-                statement.setString(5, product.getProducer());
-            }
-            else {
-                statement.setString(5, "%");
-            }
-            if(product.getPrice() > 0) {
-                statement.setDouble(6, product.getPrice());
-            }
-            else {
-                statement.setString(6, "%");
-            }
-            if(product.getQuantity() > 0) {
-                statement.setInt(7, product.getQuantity());
-            }
-            else {
-                statement.setString(7, "%");
-            }
+            connection = acquireReader();
+            FilterQuery query = productFilter(
+                    "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
+                        "FROM products", product);
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
             ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int productId = res.getInt("product_id");
-                int groupId = res.getInt("group_id");
-                String name = res.getString("product_name");
-                String description = res.getString("product_description");
-                String producer = res.getString("producer");
-                double price = res.getDouble("price");
-                int quantity = res.getInt("quantity");
-                products.add(new Product(productId, groupId, name, description, producer, price, quantity));
+                consumer.accept(readProduct(res));
+                count++;
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get products by filter!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
-        return products;
+        return count;
     }
 
     public Group getGroupById(int id) {
         Group group = null;
+        Connection connection = null;
         try {
-            PreparedStatement statement = this.connection.prepareStatement(
-                    "SELECT group_id, group_name, group_description\n" +
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
+                    "SELECT group_id, group_name, group_description, version\n" +
                         "FROM groups\n" +
                         "WHERE group_id = ?;\n");
             statement.setInt(1, id);
             ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int groupId = res.getInt("group_id");
-                String name = res.getString("group_name");
-                String description = res.getString("group_description");
-                group = new Group(groupId, name, description);
+                group = readGroup(res);
                 break;
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get groups!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
         return group;
     }
 
     public Product getProductById(int id) {
         Product product = null;
+        Connection connection = null;
         try {
-            PreparedStatement statement  = this.connection.prepareStatement(
-                    "SELECT product_id, group_id, product_name, product_description, producer, quantity, price\n" +
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
+                    "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
                         "FROM products\n" +
                         "WHERE product_id = ?;\n");
             statement.setInt(1, id);
             ResultSet res = statement.executeQuery();
             while(res.next()) {
-                int productId = res.getInt("product_id");
-                int groupId = res.getInt("group_id");
-                String name = res.getString("product_name");
-                String description = res.getString("product_description");
-                String producer = res.getString("producer");
-                double price = res.getDouble("price");
-                int quantity = res.getInt("quantity");
-                product = new Product(productId, groupId, name, description, producer, price, quantity);
+                product = readProduct(res);
                 break;
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get products!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
         return product;
     }
 
-    public int deleteGroupById(int id) {
+    public synchronized int deleteGroupById(int id) {
         int result = 0;
+        List<Change> changes = groupDeletes(new int[] {id});
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "DELETE FROM groups\n" +
                             "WHERE group_id = ?;\n");
             statement.setInt(1, id);
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("group was not deleted!");
             //e.printStackTrace();
         }
+        if(result > 0) {
+            logChanges(changes);
+        }
         return result;
     }
 
-    public int deleteGroupsByIds(int[] ids) {
+    public synchronized int deleteGroupsByIds(int[] ids) {
         int result = 0;
         try{
             if(ids.length == 0) {
                 return result;
             }
+            List<Change> changes = groupDeletes(ids);
             StringBuilder param = new StringBuilder();
             param.append('?');
             for(int i = 1; i < ids.length; i++) {
                 param.append(", ").append('?');
             }
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "DELETE FROM groups\n" +
                             "WHERE group_id IN (" + param + ");\n");
             for(int i = 0; i < ids.length; i++) {
                 statement.setInt(i+1, ids[i]);
             }
             result = statement.executeUpdate();
-            statement.close();
+            if(result > 0) {
+                logChanges(changes);
+            }
         }catch (SQLException e){
             //System.out.println("group was not deleted!");
             //e.printStackTrace();
@@ -465,41 +779,47 @@ public class Stock {
         return result;
     }
 
-    public int deleteProductById(int id) {
+    public synchronized int deleteProductById(int id) {
         int result = 0;
+        List<Change> changes = productDeletes(new int[] {id});
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "DELETE FROM products\n" +
                             "WHERE product_id = ?;\n");
             statement.setInt(1, id);
             result = statement.executeUpdate();
-            statement.close();
         }catch (SQLException e){
             //System.out.println("group was not deleted!");
             //e.printStackTrace();
         }
+        if(result > 0) {
+            logChanges(changes);
+        }
         return result;
     }
 
-    public int deleteProductsByIds(int[] ids) {
+    public synchronized int deleteProductsByIds(int[] ids) {
         int result = 0;
         try{
             if(ids.length == 0) {
                 return result;
             }
+            List<Change> changes = productDeletes(ids);
             StringBuilder param = new StringBuilder();
             param.append('?');
             for(int i = 1; i < ids.length; i++) {
                 param.append(", ").append('?');
             }
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "DELETE FROM products\n" +
                             "WHERE product_id IN (" + param + ");\n");
             for(int i = 0; i < ids.length; i++) {
                 statement.setInt(i+1, ids[i]);
             }
             result = statement.executeUpdate();
-            statement.close();
+            if(result > 0) {
+                logChanges(changes);
+            }
         }catch (SQLException e){
             //System.out.println("group was not deleted!");
             //e.printStackTrace();
@@ -508,122 +828,390 @@ public class Stock {
     }
 
     public void close() throws SQLException {
-        this.connection.close();
+        for(StatementCache cache : this.statementCaches.values()) {
+            cache.clear();
+        }
+        for(Connection reader : this.readerConnections) {
+            reader.close();
+        }
+        this.writer.close();
     }
 
     public List<String[]> getProductsInnerJoinGroups() {
         List<String[]> products = new LinkedList<>();
+        getProductsInnerJoinGroups(products::add);
+        return products;
+    }
+
+    public int getProductsInnerJoinGroups(Consumer<String[]> consumer) {
+        int count = 0;
+        Connection connection = null;
         try {
-            Statement statement  = this.connection.createStatement();
-            ResultSet res = statement.executeQuery(
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
                         "SELECT product_id, group_name, product_name, product_description, producer, price, quantity\n" +
                             "FROM products\n" +
                             "INNER JOIN groups ON products.group_id = groups.group_id;\n");
+            ResultSet res = statement.executeQuery();
             while(res.next()) {
-                String productId = res.getString("product_id");
-                String groupName = res.getString("group_name");
-                String name = res.getString("product_name");
-                String description = res.getString("product_description");
-                String producer = res.getString("producer");
-                String price = res.getString("price");
-                String quantity = res.getString("quantity");
-                products.add(new String[] {productId, groupName, name, description, producer, price, quantity});
+                consumer.accept(readProductRow(res));
+                count++;
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
             //System.out.println("Can't get products!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
-        return products;
+        return count;
     }
 
     public List<String[]> getProductsInnerJoinGroupsByFilter(Product product) {
         List<String[]> products = new LinkedList<>();
+        getProductsInnerJoinGroupsByFilter(product, products::add);
+        return products;
+    }
+
+    public int getProductsInnerJoinGroupsByFilter(Product product, Consumer<String[]> consumer) {
+        int count = 0;
+        Connection connection = null;
         try {
-            PreparedStatement statement  = this.connection.prepareStatement(
+            connection = acquireReader();
+            FilterQuery query = productFilter(
                     "SELECT product_id, group_name, product_name, product_description, producer, price, quantity\n" +
                             "FROM products\n" +
-                            "INNER JOIN groups ON products.group_id = groups.group_id\n" +
-                            "WHERE product_id LIKE ?\n" +
-                            "AND products.group_id LIKE ?\n" +
-                            "AND product_name LIKE ?\n" +
-                            "AND product_description LIKE ?\n" +
-                            "AND producer LIKE ?\n" +
-                            "AND price LIKE ?\n" +
-                            "AND quantity LIKE ?;\n");
-            if(product.getProductId() > 0) {
-                statement.setInt(1, product.getProductId());
-            }
-            else {
-                statement.setString(1, "%");
-            }
-            if(product.getGroupId() > 0) {
-                statement.setInt(2, product.getGroupId());
-            }
-            else {
-                statement.setString(2, "%");
-            }
-            if(product.getName() != null && !product.getName().isEmpty()) {
-                statement.setString(3, product.getName());
-            }
-            else {
-                statement.setString(3, "%");
+                            "INNER JOIN groups ON products.group_id = groups.group_id", product);
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                consumer.accept(readProductRow(res));
+                count++;
             }
-            if(product.getDescription() != null && !product.getDescription().isEmpty()) {
-                statement.setString(4, product.getDescription());
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't get products by filter!");
+            System.out.println(e.getMessage());
+            //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
+        }
+        return count;
+    }
+
+    public Page<Group> getGroupsPage(PageRequest<Group> request) {
+        int size = pageSize(request);
+        List<Group> groups = new ArrayList<>(size + 1);
+        Connection connection = null;
+        try {
+            connection = acquireReader();
+            Group group = request.getFilter() != null ? request.getFilter() : new Group();
+            FilterQuery query = new FilterQuery(
+                    "SELECT group_id, group_name, group_description, version\n" +
+                        "FROM groups")
+                    .equalIfSet("group_id", group.getGroupId())
+                    .likeIfSet("group_name", group.getName())
+                    .likeIfSet("group_description", group.getDescription())
+                    .greaterThan("group_id", request.getAfterId())
+                    .orderBy("group_id", false)
+                    .limit(size + 1);
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                groups.add(readGroup(res));
             }
-            else {
-                statement.setString(4, "%");
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't get groups page!");
+            //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
+        }
+        return toPage(groups, size, Group::getGroupId);
+    }
+
+    public Page<Product> getProductsPage(PageRequest<Product> request) {
+        int size = pageSize(request);
+        List<Product> products = new ArrayList<>(size + 1);
+        Connection connection = null;
+        try {
+            connection = acquireReader();
+            FilterQuery query = productFilter(
+                    "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
+                        "FROM products", request.getFilter() != null ? request.getFilter() : new Product())
+                    .greaterThan("products.product_id", request.getAfterId())
+                    .orderBy("products.product_id", false)
+                    .limit(size + 1);
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                products.add(readProduct(res));
             }
-            if(product.getProducer() != null && !product.getProducer().isEmpty()) {
-                statement.setString(5, product.getProducer());
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't get products page!");
+            //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
+        }
+        return toPage(products, size, Product::getProductId);
+    }
+
+    public Page<String[]> getProductsInnerJoinGroupsPage(PageRequest<Product> request) {
+        int size = pageSize(request);
+        List<String[]> products = new ArrayList<>(size + 1);
+        Connection connection = null;
+        try {
+            connection = acquireReader();
+            FilterQuery query = productFilter(
+                    "SELECT product_id, group_name, product_name, product_description, producer, price, quantity\n" +
+                            "FROM products\n" +
+                            "INNER JOIN groups ON products.group_id = groups.group_id",
+                    request.getFilter() != null ? request.getFilter() : new Product())
+                    .greaterThan("products.product_id", request.getAfterId())
+                    .orderBy("products.product_id", false)
+                    .limit(size + 1);
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                products.add(readProductRow(res));
             }
-            else {
-                statement.setString(5, "%");
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't get products page!");
+            //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
+        }
+        return toPage(products, size, row -> Integer.parseInt(row[0]));
+    }
+
+    public InventoryTotals getInventoryTotals() {
+        List<GroupTotals> groups = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = acquireReader();
+            PreparedStatement statement = prepare(connection,
+                    "SELECT group_id, item_count, total_quantity, total_value\n" +
+                        "FROM group_totals\n" +
+                        "ORDER BY group_id;\n");
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                groups.add(new GroupTotals(res.getInt(1), res.getInt(2), res.getLong(3), res.getDouble(4)));
             }
-            if(product.getPrice() > 0) {
-                statement.setDouble(6, product.getPrice());
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't get inventory totals!");
+            //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
+        }
+        return toInventoryTotals(groups);
+    }
+
+    public synchronized InventoryTotals computeInventoryTotals() {
+        List<GroupTotals> groups = new ArrayList<>();
+        try {
+            PreparedStatement statement = prepare(this.writer, COMPUTE_TOTALS + "\nORDER BY groups.group_id;\n");
+            ResultSet res = statement.executeQuery();
+            while(res.next()) {
+                groups.add(new GroupTotals(res.getInt(1), res.getInt(2), res.getLong(3), res.getDouble(4)));
             }
-            else {
-                statement.setString(6, "%");
+            res.close();
+        } catch (SQLException e) {
+            //System.out.println("Can't compute inventory totals!");
+            //e.printStackTrace();
+        }
+        return toInventoryTotals(groups);
+    }
+
+    public synchronized boolean verifyInventoryTotals() {
+        List<GroupTotals> maintained = getInventoryTotals().getGroups();
+        List<GroupTotals> computed = computeInventoryTotals().getGroups();
+        if(maintained.size() != computed.size()) {
+            return false;
+        }
+        for(int i = 0; i < computed.size(); i++) {
+            GroupTotals a = maintained.get(i);
+            GroupTotals b = computed.get(i);
+            if(a.getGroupId() != b.getGroupId() || a.getItemCount() != b.getItemCount() || a.getQuantity() != b.getQuantity()
+                    || Math.abs(a.getValue() - b.getValue()) > 1e-6 * Math.max(1, Math.abs(b.getValue()))) {
+                return false;
             }
-            if(product.getQuantity() > 0) {
-                statement.setInt(7, product.getQuantity());
+        }
+        return true;
+    }
+
+    private InventoryTotals toInventoryTotals(List<GroupTotals> groups) {
+        int itemCount = 0;
+        long quantity = 0;
+        double value = 0;
+        for(GroupTotals group : groups) {
+            itemCount += group.getItemCount();
+            quantity += group.getQuantity();
+            value += group.getValue();
+        }
+        return new InventoryTotals(itemCount, quantity, value, groups);
+    }
+
+    public List<Product> getProductsSorted(Product product, SortSpec sort) {
+        String select = "SELECT product_id, group_id, product_name, product_description, producer, price, quantity, version\n" +
+                            "FROM products";
+        if(sort.getColumn() == SortSpec.Column.VALUE && sort.getLimit() > 0) {
+            TopN<Product> top = new TopN<>(sort.getLimit(), valueOrder(sort,
+                    p -> p.getPrice() * p.getQuantity(), Product::getProductId));
+            getProductsByFilter(product, top);
+            return top.toList();
+        }
+        List<Product> products = new ArrayList<>();
+        sortedQuery(select, product, sort, this::readProduct, products::add);
+        return products;
+    }
+
+    public List<String[]> getProductsInnerJoinGroupsSorted(Product product, SortSpec sort) {
+        String select = "SELECT product_id, group_name, product_name, product_description, producer, price, quantity\n" +
+                            "FROM products\n" +
+                            "INNER JOIN groups ON products.group_id = groups.group_id";
+        if(sort.getColumn() == SortSpec.Column.VALUE && sort.getLimit() > 0) {
+            TopN<String[]> top = new TopN<>(sort.getLimit(), valueOrder(sort,
+                    row -> Double.parseDouble(row[5]) * Double.parseDouble(row[6]), row -> Integer.parseInt(row[0])));
+            getProductsInnerJoinGroupsByFilter(product, top);
+            return top.toList();
+        }
+        List<String[]> products = new ArrayList<>();
+        sortedQuery(select, product, sort, this::readProductRow, products::add);
+        return products;
+    }
+
+    private interface RowReader<T> {
+        T read(ResultSet res) throws SQLException;
+    }
+
+    private <T> void sortedQuery(String select, Product product, SortSpec sort, RowReader<T> reader, Consumer<T> consumer) {
+        SortSpec.Column column = sort.getColumn() == null ? SortSpec.Column.ID : sort.getColumn();
+        Connection connection = null;
+        try {
+            connection = acquireReader();
+            FilterQuery query = productFilter(select, product)
+                    .orderBy(orderColumn(column), sort.isDescending());
+            if(column != SortSpec.Column.ID) {
+                query.orderBy("products.product_id", sort.isDescending());
             }
-            else {
-                statement.setString(7, "%");
+            if(sort.getLimit() > 0) {
+                query.limit(sort.getLimit());
             }
+            PreparedStatement statement = prepare(connection, query.getSql());
+            query.bind(statement);
             ResultSet res = statement.executeQuery();
             while(res.next()) {
-                String productId = res.getString("product_id");
-                String groupName = res.getString("group_name");
-                String name = res.getString("product_name");
-                String description = res.getString("product_description");
-                String producer = res.getString("producer");
-                String price = res.getString("price");
-                String quantity = res.getString("quantity");
-                products.add(new String[] {productId, groupName, name, description, producer, price, quantity});
+                consumer.accept(reader.read(res));
             }
-            statement.close();
+            res.close();
         } catch (SQLException e) {
-            //System.out.println("Can't get products by filter!");
-            System.out.println(e.getMessage());
+            //System.out.println("Can't get sorted products!");
             //e.printStackTrace();
+        } finally {
+            releaseReader(connection);
         }
-        return products;
     }
 
-    public int increaseProductQuantity(int id, int value) {
+    private static String orderColumn(SortSpec.Column column) {
+        switch (column) {
+            case GROUP:
+                return "products.group_id";
+            case NAME:
+                return "product_name COLLATE NOCASE";
+            case PRODUCER:
+                return "producer COLLATE NOCASE";
+            case PRICE:
+                return "price";
+            case QUANTITY:
+                return "quantity";
+            case VALUE:
+                return "price * quantity";
+            default:
+                return "products.product_id";
+        }
+    }
+
+    private static <T> Comparator<T> valueOrder(SortSpec sort, ToDoubleFunction<T> value, ToIntFunction<T> id) {
+        Comparator<T> order = Comparator.comparingDouble(value).thenComparingInt(id);
+        return sort.isDescending() ? order.reversed() : order;
+    }
+
+    private int pageSize(PageRequest<?> request) {
+        return Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+    }
+
+    private <T> Page<T> toPage(List<T> items, int size, ToIntFunction<T> id) {
+        int nextCursor = 0;
+        if(items.size() > size) {
+            items.remove(size);
+            nextCursor = id.applyAsInt(items.get(size - 1));
+        }
+        return new Page<>(items, nextCursor);
+    }
+
+    private FilterQuery productFilter(String select, Product product) {
+        return new FilterQuery(select)
+                .equalIfSet("products.product_id", product.getProductId())
+                .equalIfSet("products.group_id", product.getGroupId())
+                .likeIfSet("product_name", product.getName())
+                .likeIfSet("product_description", product.getDescription())
+                .likeIfSet("producer", product.getProducer())
+                .equalIfSet("price", product.getPrice())
+                .equalIfSet("quantity", product.getQuantity());
+    }
+
+    private Product readProduct(ResultSet res) throws SQLException {
+        int productId = res.getInt("product_id");
+        int groupId = res.getInt("group_id");
+        String name = res.getString("product_name");
+        String description = res.getString("product_description");
+        String producer = res.getString("producer");
+        double price = res.getDouble("price");
+        int quantity = res.getInt("quantity");
+        int version = res.getInt("version");
+        return new Product(productId, groupId, name, description, producer, price, quantity, version);
+    }
+
+    private Group readGroup(ResultSet res) throws SQLException {
+        int groupId = res.getInt("group_id");
+        String name = res.getString("group_name");
+        String description = res.getString("group_description");
+        int version = res.getInt("version");
+        return new Group(groupId, name, description, version);
+    }
+
+    private String[] readProductRow(ResultSet res) throws SQLException {
+        String productId = res.getString("product_id");
+        String groupName = res.getString("group_name");
+        String name = res.getString("product_name");
+        String description = res.getString("product_description");
+        String producer = res.getString("producer");
+        String price = res.getString("price");
+        String quantity = res.getString("quantity");
+        return new String[] {productId, groupName, name, description, producer, price, quantity};
+    }
+
+    public synchronized int increaseProductQuantity(int id, int value) {
         int result = 0;
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "UPDATE products\n" +
-                            "SET quantity = quantity + ?\n" +
+                            "SET quantity = quantity + ?,\n" +
+                            "version = version + 1\n" +
                             "WHERE product_id = ?;\n");
             statement.setInt(1, value);
             statement.setInt(2, id);
             result = statement.executeUpdate();
-            statement.close();
+            if(result > 0) {
+                logQuantities(Map.of(id, value));
+            }
         }catch (SQLException e){
             //System.out.println("product was not updated!");
             //e.printStackTrace();
@@ -631,7 +1219,7 @@ public class Stock {
         return result;
     }
 
-    public int increaseProductsQuantity(int[] ids, int value) {
+    public synchronized int increaseProductsQuantity(int[] ids, int value) {
         int result = 0;
         try{
             if(ids.length == 0) {
@@ -642,16 +1230,23 @@ public class Stock {
             for(int i = 1; i < ids.length; i++) {
                 param.append(", ").append('?');
             }
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                     "UPDATE products\n" +
-                            "SET quantity = quantity + ?\n" +
+                            "SET quantity = quantity + ?,\n" +
+                            "version = version + 1\n" +
                             "WHERE product_id IN (" + param + ");\n");
             statement.setInt(1, value);
             for(int i = 0; i < ids.length; i++) {
                 statement.setInt(i + 2, ids[i]);
             }
             result = statement.executeUpdate();
-            statement.close();
+            if(result > 0) {
+                Map<Integer, Integer> deltas = new LinkedHashMap<>();
+                for(int id : ids) {
+                    deltas.put(id, value);
+                }
+                logQuantities(deltas);
+            }
         }catch (SQLException e){
             //System.out.println("product was not updated!");
             //e.printStackTrace();
@@ -659,18 +1254,279 @@ public class Stock {
         return result;
     }
 
-    public int decreaseProductQuantity(int id, int value) {
+    public synchronized Map<Integer, Integer> adjustProductsQuantity(Map<Integer, Integer> deltas) throws SQLException {
+        Map<Integer, Integer> results = new LinkedHashMap<>();
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        int[] updated = executeBatch(
+                "UPDATE products\n" +
+                    "SET quantity = quantity + ?,\n" +
+                    "version = version + 1\n" +
+                    "WHERE product_id = ? AND quantity + ? >= 0;\n", entries, BATCH_CHUNK_SIZE, (statement, entry) -> {
+                    statement.setInt(1, entry.getValue());
+                    statement.setInt(2, entry.getKey());
+                    statement.setInt(3, entry.getValue());
+                });
+        Map<Integer, Integer> adjusted = new LinkedHashMap<>();
+        for(int i = 0; i < entries.size(); i++) {
+            int id = entries.get(i).getKey();
+            if(updated[i] > 0) {
+                results.put(id, QuantityAdjustments.ADJUSTED);
+                adjusted.put(id, entries.get(i).getValue());
+            }
+            else {
+                results.put(id, productExists(id) ? QuantityAdjustments.INSUFFICIENT_QUANTITY : QuantityAdjustments.NOT_FOUND);
+            }
+        }
+        logQuantities(adjusted);
+        return results;
+    }
+
+    public synchronized Map<Integer, Integer> pickOrder(Map<Integer, Integer> lines) throws SQLException {
+        Map<Integer, Integer> failures = new LinkedHashMap<>();
+        for(Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            if(line.getValue() <= 0) {
+                failures.put(line.getKey(), QuantityAdjustments.INVALID_QUANTITY);
+            }
+        }
+        if(!failures.isEmpty() || lines.isEmpty()) {
+            return failures;
+        }
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(lines.entrySet());
+        this.writer.setAutoCommit(false);
+        try {
+            PreparedStatement statement = prepare(this.writer,
+                    "UPDATE products\n" +
+                        "SET quantity = quantity - ?,\n" +
+                        "version = version + 1\n" +
+                        "WHERE product_id = ? AND quantity >= ?;\n");
+            for(Map.Entry<Integer, Integer> line : entries) {
+                statement.setInt(1, line.getValue());
+                statement.setInt(2, line.getKey());
+                statement.setInt(3, line.getValue());
+                statement.addBatch();
+            }
+            int[] counts;
+            try {
+                counts = statement.executeBatch();
+            } finally {
+                statement.clearBatch();
+            }
+            for(int i = 0; i < entries.size(); i++) {
+                if(counts[i] == 0) {
+                    int id = entries.get(i).getKey();
+                    failures.put(id, productExists(id) ? QuantityAdjustments.INSUFFICIENT_QUANTITY : QuantityAdjustments.NOT_FOUND);
+                }
+            }
+            if(failures.isEmpty()) {
+                this.writer.commit();
+                Map<Integer, Integer> deltas = new LinkedHashMap<>();
+                for(Map.Entry<Integer, Integer> line : entries) {
+                    deltas.put(line.getKey(), -line.getValue());
+                }
+                logQuantities(deltas);
+            }
+            else {
+                this.writer.rollback();
+            }
+        } catch (SQLException | RuntimeException e) {
+            this.writer.rollback();
+            throw e;
+        } finally {
+            try {
+                this.writer.setAutoCommit(true);
+            } catch (SQLException e) {
+                //e.printStackTrace();
+            }
+        }
+        return failures;
+    }
+
+    public ChangeLog getChangeLog() {
+        return this.changeLog;
+    }
+
+    private int lastId(String table, String column) {
+        int id = -1;
+        try {
+            PreparedStatement statement = prepare(this.writer,
+                    "SELECT IFNULL(MAX(" + column + "), 0)\n" +
+                        "FROM " + table + ";\n");
+            ResultSet res = statement.executeQuery();
+            if(res.next()) {
+                id = res.getInt(1);
+            }
+            res.close();
+        } catch (SQLException e) {
+            //e.printStackTrace();
+        }
+        return id;
+    }
+
+    private <T> List<T> selectByIds(String select, String column, int[] ids, RowReader<T> reader) {
+        List<T> rows = new ArrayList<>();
+        int chunkSize = Math.max(1, BATCH_CHUNK_SIZE);
+        try {
+            for(int start = 0; start < ids.length; start += chunkSize) {
+                int end = Math.min(start + chunkSize, ids.length);
+                StringBuilder param = new StringBuilder();
+                param.append('?');
+                for(int i = start + 1; i < end; i++) {
+                    param.append(", ").append('?');
+                }
+                PreparedStatement statement = prepare(this.writer,
+                        select +
+                            "WHERE " + column + " IN (" + param + ");\n");
+                for(int i = start; i < end; i++) {
+                    statement.setInt(i - start + 1, ids[i]);
+                }
+                ResultSet res = statement.executeQuery();
+                while(res.next()) {
+                    rows.add(reader.read(res));
+                }
+                res.close();
+            }
+        } catch (SQLException e) {
+            //e.printStackTrace();
+            return null;
+        }
+        return rows;
+    }
+
+    private void logChanges(List<Change> changes) {
+        if(changes == null) {
+            this.changeLog.reset();
+        }
+        else {
+            this.changeLog.append(changes);
+        }
+    }
+
+    private void logInsertedGroups(int lastId) {
+        List<Change> changes = null;
+        try {
+            if(lastId >= 0) {
+                PreparedStatement statement = prepare(this.writer,
+                        SELECT_GROUPS +
+                            "WHERE group_id > ?\n" +
+                            "ORDER BY group_id;\n");
+                statement.setInt(1, lastId);
+                ResultSet res = statement.executeQuery();
+                changes = new ArrayList<>();
+                while(res.next()) {
+                    Group group = readGroup(res);
+                    changes.add(new Change(0, Change.GROUP_INSERTED, group.getGroupId(), 0, group, null));
+                }
+                res.close();
+            }
+        } catch (SQLException e) {
+            changes = null;
+        }
+        logChanges(changes);
+    }
+
+    private void logInsertedProducts(int lastId) {
+        List<Change> changes = null;
+        try {
+            if(lastId >= 0) {
+                PreparedStatement statement = prepare(this.writer,
+                        SELECT_PRODUCTS +
+                            "WHERE product_id > ?\n" +
+                            "ORDER BY product_id;\n");
+                statement.setInt(1, lastId);
+                ResultSet res = statement.executeQuery();
+                changes = new ArrayList<>();
+                while(res.next()) {
+                    Product product = readProduct(res);
+                    changes.add(new Change(0, Change.PRODUCT_INSERTED, product.getProductId(), 0, null, product));
+                }
+                res.close();
+            }
+        } catch (SQLException e) {
+            changes = null;
+        }
+        logChanges(changes);
+    }
+
+    private void logUpdatedGroup(int id) {
+        logChanges(selectByIds(SELECT_GROUPS, "group_id", new int[] {id},
+                res -> new Change(0, Change.GROUP_UPDATED, id, 0, readGroup(res), null)));
+    }
+
+    private void logUpdatedProduct(int id) {
+        logChanges(selectByIds(SELECT_PRODUCTS, "product_id", new int[] {id},
+                res -> new Change(0, Change.PRODUCT_UPDATED, id, 0, null, readProduct(res))));
+    }
+
+    private void logQuantities(Map<Integer, Integer> deltas) {
+        if(deltas.isEmpty()) {
+            return;
+        }
+        int[] ids = deltas.keySet().stream().mapToInt(Integer::intValue).toArray();
+        logChanges(selectByIds(SELECT_PRODUCTS, "product_id", ids, res -> {
+            Product product = readProduct(res);
+            return new Change(0, Change.QUANTITY_CHANGED, product.getProductId(), deltas.get(product.getProductId()), null, product);
+        }));
+    }
+
+    private List<Change> groupDeletes(int[] ids) {
+        List<Change> changes = selectByIds("SELECT product_id\nFROM products\n", "group_id", ids,
+                res -> new Change(0, Change.PRODUCT_DELETED, res.getInt("product_id"), 0, null, null));
+        List<Change> groups = selectByIds("SELECT group_id\nFROM groups\n", "group_id", ids,
+                res -> new Change(0, Change.GROUP_DELETED, res.getInt("group_id"), 0, null, null));
+        if(changes == null || groups == null) {
+            return null;
+        }
+        changes.addAll(groups);
+        return changes;
+    }
+
+    private List<Change> productDeletes(int[] ids) {
+        return selectByIds("SELECT product_id\nFROM products\n", "product_id", ids,
+                res -> new Change(0, Change.PRODUCT_DELETED, res.getInt("product_id"), 0, null, null));
+    }
+
+    private boolean groupExists(int id) {
+        boolean exists = false;
+        try {
+            PreparedStatement statement = prepare(this.writer,
+                    "SELECT 1 FROM groups\n" +
+                        "WHERE group_id = ?;\n");
+            statement.setInt(1, id);
+            ResultSet res = statement.executeQuery();
+            exists = res.next();
+            res.close();
+        } catch (SQLException e) {
+            //e.printStackTrace();
+        }
+        return exists;
+    }
+
+    private boolean productExists(int id) throws SQLException {
+        PreparedStatement statement = prepare(this.writer,
+                "SELECT 1 FROM products\n" +
+                    "WHERE product_id = ?;\n");
+        statement.setInt(1, id);
+        ResultSet res = statement.executeQuery();
+        boolean exists = res.next();
+        res.close();
+        return exists;
+    }
+
+    public synchronized int decreaseProductQuantity(int id, int value) {
         int result = 0;
         try{
-            PreparedStatement statement = this.connection.prepareStatement(
+            PreparedStatement statement = prepare(this.writer,
                         "UPDATE products\n" +
-                            "SET quantity = quantity - ?\n" +
+                            "SET quantity = quantity - ?,\n" +
+                            "version = version + 1\n" +
                             "WHERE product_id = ? AND quantity >= ?;\n");
             statement.setInt(1, value);
             statement.setInt(2, id);
             statement.setInt(3, value);
             result = statement.executeUpdate();
-            statement.close();
+            if(result > 0) {
+                logQuantities(Map.of(id, -value));
+            }
         }catch (SQLException e){
             //System.out.println("product was not updated!");
             //e.printStackTrace();
@@ -0,0 +1,51 @@
+package com.mshevchenko.stock;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+public class TopN<T> implements Consumer<T> {
+
+    private int limit;
+    private Comparator<? super T> comparator;
+    private PriorityQueue<T> heap;
+    private long seen;
+
+    public TopN(int limit, Comparator<? super T> comparator) {
+        if(limit < 1) {
+            throw new IllegalArgumentException("limit " + limit);
+        }
+        this.limit = limit;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, comparator.reversed());
+    }
+
+    @Override
+    public void accept(T value) {
+        this.seen++;
+        if(this.heap.size() < this.limit) {
+            this.heap.add(value);
+        }
+        else if(this.comparator.compare(value, this.heap.peek()) < 0) {
+            this.heap.poll();
+            this.heap.add(value);
+        }
+    }
+
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(this.heap);
+        result.sort(this.comparator);
+        return result;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getSeen() {
+        return seen;
+    }
+
+}
@@ -1,13 +1,35 @@
+import com.mshevchenko.stock.CachingStock;
+import com.mshevchenko.stock.ChangeLog;
+import com.mshevchenko.stock.FilterQuery;
 import com.mshevchenko.stock.Stock;
+import com.mshevchenko.stock.TopN;
+import com.mshevchenko.stock_objects.Change;
+import com.mshevchenko.stock_objects.ChangeSet;
 import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
 import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.QuantityAdjustments;
+import com.mshevchenko.stock_objects.SortSpec;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class StockTest {
 
@@ -178,4 +200,368 @@ public class StockTest {
         Assertions.assertEquals(result, 0);
     }
 
+    @Test
+    public void getProductsVisitorTest() {
+        List<String> names = new LinkedList<>();
+        Assertions.assertEquals(this.stock.getProducts(product -> names.add(product.getName())), 3);
+        Assertions.assertEquals(names, List.of("Product1", "Product2", "Product3"));
+        List<String[]> rows = new LinkedList<>();
+        Assertions.assertEquals(this.stock.getProductsInnerJoinGroupsByFilter(new Product(-1, 1, null, null, null, -1, -1), rows::add), 2);
+        Assertions.assertEquals(rows.get(0)[1], "Group1");
+    }
+
+    @Test
+    public void concurrentReadersTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> reads = new LinkedList<>();
+            for(int i = 0; i < 40; i++) {
+                reads.add(executor.submit(() -> this.stock.getProducts().size()));
+                this.stock.insertProduct(new Product(4 + i, 3, "Product" + (4 + i), "Product", "Product", 1, 1));
+            }
+            for(Future<Integer> read : reads) {
+                int size = read.get();
+                Assertions.assertTrue(size >= 3 && size <= 43);
+            }
+            Assertions.assertEquals(this.stock.getProducts().size(), 43);
+            Assertions.assertEquals(this.stock.getProductsByFilter(new Product(-1, 3, null, null, null, -1, -1)).size(), 40);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void statementCacheTest() throws SQLException, ClassNotFoundException {
+        this.stock.close();
+        this.stock = new Stock("stock-database/src/main/resources/testStock.db", 1, 2);
+        long misses = this.stock.getStatementCacheMisses();
+        long hits = this.stock.getStatementCacheHits();
+        Assertions.assertEquals(this.stock.getProductById(1).getName(), "Product1");
+        Assertions.assertEquals(this.stock.getProductById(2).getName(), "Product2");
+        Assertions.assertEquals(this.stock.getStatementCacheMisses(), misses + 1);
+        Assertions.assertEquals(this.stock.getStatementCacheHits(), hits + 1);
+        Assertions.assertEquals(this.stock.increaseProductsQuantity(new int[] {1, 2}, 1), 2);
+        Assertions.assertEquals(this.stock.increaseProductsQuantity(new int[] {1}, 1), 1);
+        Assertions.assertEquals(this.stock.increaseProductsQuantity(new int[] {1, 2, 3}, 1), 3);
+        Assertions.assertEquals(this.stock.getStatementCacheEvictions(), 4);
+        Assertions.assertEquals(this.stock.increaseProductsQuantity(new int[] {2, 3}, 1), 2);
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 33);
+        Assertions.assertEquals(this.stock.getProductById(2).getQuantity(), 23);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 12);
+    }
+
+    @Test
+    public void filterQueryTest() {
+        FilterQuery query = new FilterQuery("SELECT product_id\nFROM products")
+                .equalIfSet("group_id", 7)
+                .likeIfSet("producer", null)
+                .equalIfSet("price", -1.0)
+                .likeIfSet("product_name", "Pro%");
+        Assertions.assertEquals(query.getPredicateCount(), 2);
+        Assertions.assertEquals(query.getSql(), "SELECT product_id\nFROM products\nWHERE group_id = ?\nAND product_name LIKE ?;\n");
+        FilterQuery same = new FilterQuery("SELECT product_id\nFROM products")
+                .equalIfSet("group_id", 3)
+                .likeIfSet("product_name", "Other");
+        Assertions.assertSame(same.getSql(), query.getSql());
+        this.stock.insertProduct(new Product(4, 3, "Product4", null, null, 4.5, 5));
+        Assertions.assertEquals(this.stock.getProductsByFilter(new Product(-1, -1, null, null, null, -1, -1)).size(), 4);
+        Assertions.assertEquals(this.stock.getProductsByFilter(new Product(-1, -1, "product%", null, null, 2.5, -1)).size(), 1);
+        Assertions.assertEquals(this.stock.getProductsByFilter(new Product(-1, 3, null, null, null, -1, 5)).size(), 1);
+        Assertions.assertEquals(this.stock.getProductsInnerJoinGroupsByFilter(new Product(-1, 1, null, null, "product%", -1, -1)).size(), 2);
+        Assertions.assertEquals(this.stock.getGroupsByFilter(new Group(2, null, null)).size(), 1);
+    }
+
+    @Test
+    public void productsPageTest() {
+        for(int i = 4; i <= 10; i++) {
+            this.stock.insertProduct(new Product(i, 3, "Product" + i, "Product" + i, "Product" + i, 1, i));
+        }
+        List<Integer> ids = new LinkedList<>();
+        int cursor = 0;
+        int pages = 0;
+        do {
+            Page<Product> page = this.stock.getProductsPage(new PageRequest<>(cursor, 4));
+            Assertions.assertTrue(page.getItems().size() <= 4);
+            for(Product product : page.getItems()) {
+                ids.add(product.getProductId());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while(cursor > 0);
+        Assertions.assertEquals(pages, 3);
+        Assertions.assertEquals(ids, List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        Page<Product> filtered = this.stock.getProductsPage(new PageRequest<>(5, 2, new Product(-1, 3, null, null, null, -1, -1)));
+        Assertions.assertEquals(filtered.getItems().get(0).getProductId(), 6);
+        Assertions.assertEquals(filtered.getNextCursor(), 7);
+        Page<String[]> rows = this.stock.getProductsInnerJoinGroupsPage(new PageRequest<>(9, 4));
+        Assertions.assertEquals(rows.getItems().size(), 1);
+        Assertions.assertEquals(rows.getItems().get(0)[1], "Group3");
+        Assertions.assertEquals(rows.getNextCursor(), 0);
+        Page<Group> groups = this.stock.getGroupsPage(new PageRequest<>(0, 2));
+        Assertions.assertEquals(groups.getItems().size(), 2);
+        Assertions.assertEquals(groups.getNextCursor(), 2);
+        Assertions.assertEquals(this.stock.getGroupsPage(new PageRequest<>(2, 2)).getNextCursor(), 0);
+    }
+
+    @Test
+    public void sortedProductsTest() {
+        this.stock.insertProduct(new Product(4, 2, "apple", "Product4", "producer", 0.5, 100));
+        Product all = new Product();
+        List<Product> cheapest = this.stock.getProductsSorted(all, new SortSpec(SortSpec.Column.PRICE, false, 2));
+        Assertions.assertEquals(cheapest.size(), 2);
+        Assertions.assertEquals(cheapest.get(0).getName(), "apple");
+        Assertions.assertEquals(cheapest.get(1).getName(), "Product1");
+        List<Product> byName = this.stock.getProductsSorted(all, new SortSpec(SortSpec.Column.NAME, true, 0));
+        Assertions.assertEquals(byName.get(0).getName(), "Product3");
+        Assertions.assertEquals(byName.get(3).getName(), "apple");
+        List<Product> lowStock = this.stock.getProductsSorted(new Product(-1, 1, null, null, null, -1, -1), new SortSpec(SortSpec.Column.QUANTITY, false, 1));
+        Assertions.assertEquals(lowStock.get(0).getName(), "Product2");
+        List<Product> valuable = this.stock.getProductsSorted(all, new SortSpec(SortSpec.Column.VALUE, true, 2));
+        Assertions.assertEquals(valuable.get(0).getName(), "apple");
+        Assertions.assertEquals(valuable.get(1).getName(), "Product2");
+        List<String[]> rows = this.stock.getProductsInnerJoinGroupsSorted(all, new SortSpec(SortSpec.Column.VALUE, false, 1));
+        Assertions.assertEquals(rows.get(0)[2], "Product3");
+        rows = this.stock.getProductsInnerJoinGroupsSorted(all, new SortSpec(SortSpec.Column.PRICE, true, 1));
+        Assertions.assertEquals(rows.get(0)[1], "Group2");
+    }
+
+    @Test
+    public void topNTest() {
+        TopN<Integer> top = new TopN<>(3, Comparator.reverseOrder());
+        for(int i = 0; i < 1000; i++) {
+            top.accept((i * 7919) % 1000);
+        }
+        Assertions.assertEquals(top.toList(), List.of(999, 998, 997));
+        Assertions.assertEquals(top.getSeen(), 1000);
+    }
+
+    @Test
+    public void inventoryTotalsTest() throws SQLException, ClassNotFoundException {
+        InventoryTotals totals = this.stock.getInventoryTotals();
+        Assertions.assertEquals(totals.getItemCount(), 3);
+        Assertions.assertEquals(totals.getQuantity(), 60);
+        Assertions.assertEquals(totals.getValue(), 130, 1e-9);
+        Assertions.assertEquals(totals.getGroups().size(), 3);
+        Assertions.assertEquals(totals.getGroups().get(0).getValue(), 95, 1e-9);
+        Assertions.assertEquals(totals.getGroups().get(2).getItemCount(), 0);
+        this.stock.insertProduct(new Product(4, 3, "Product4", "Product4", "Product4", 2, 5));
+        this.stock.updateProduct(new Product(1, 2, "Product1", "Product1", "Product1", 3, 10));
+        this.stock.increaseProductsQuantity(new int[] {2, 3}, 5);
+        this.stock.decreaseProductQuantity(4, 1);
+        this.stock.deleteProductById(2);
+        totals = this.stock.getInventoryTotals();
+        Assertions.assertEquals(totals.getGroups().get(0).getItemCount(), 0);
+        Assertions.assertEquals(totals.getGroups().get(1).getValue(), 30 + 3.5 * 15, 1e-9);
+        Assertions.assertEquals(totals.getGroups().get(2).getQuantity(), 4);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+        this.stock.deleteGroupById(2);
+        this.stock.insertGroup(new Group(5, "Group5", "Group5"));
+        Assertions.assertEquals(this.stock.getInventoryTotals().getGroups().size(), 3);
+        Assertions.assertEquals(this.stock.getInventoryTotals().getValue(), 8, 1e-9);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+        this.stock.close();
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:stock-database/src/main/resources/testStock.db");
+        connection.createStatement().execute("DROP TABLE group_totals");
+        connection.close();
+        this.stock = new Stock("stock-database/src/main/resources/testStock.db");
+        Assertions.assertEquals(this.stock.getInventoryTotals(), this.stock.computeInventoryTotals());
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+    }
+
+    @Test
+    public void insertProductsTest() {
+        List<Product> products = new ArrayList<>();
+        for(int i = 4; i <= 13; i++) {
+            products.add(new Product(i, 3, "Product" + i, "Product", "Product", 1, 2));
+        }
+        products.set(2, new Product(6, 1, "Product1", "Product", "Product", 1, 2));
+        products.set(7, new Product(11, 42, "Product11", "Product", "Product", 1, 2));
+        int[] results = this.stock.insertProducts(products, 4);
+        Assertions.assertArrayEquals(results, new int[] {1, 1, 0, 1, 1, 1, 1, 0, 1, 1});
+        Assertions.assertEquals(this.stock.getProducts().size(), 11);
+        Assertions.assertEquals(this.stock.getInventoryTotals().getGroups().get(2).getItemCount(), 8);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+        int[] groups = this.stock.insertGroups(List.of(new Group(0, "Group4", null), new Group(0, "Group1", null), new Group(0, "Group5", null)));
+        Assertions.assertArrayEquals(groups, new int[] {1, 0, 1});
+        Assertions.assertEquals(this.stock.getGroups().size(), 5);
+        Assertions.assertEquals(this.stock.insertProducts(new ArrayList<>()).length, 0);
+        List<Product> broken = new ArrayList<>();
+        broken.add(new Product(20, 1, "Product20", "Product", "Product", 1, 2));
+        broken.add(null);
+        Assertions.assertThrows(NullPointerException.class, () -> this.stock.insertProducts(broken, 1));
+        Assertions.assertNull(this.stock.getProductById(20));
+        Assertions.assertEquals(this.stock.getProducts().size(), 11);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+    }
+
+    @Test
+    public void adjustProductsQuantityTest() throws SQLException {
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        deltas.put(1, 5);
+        deltas.put(2, -25);
+        deltas.put(3, -10);
+        deltas.put(99, 1);
+        Map<Integer, Integer> results = this.stock.adjustProductsQuantity(deltas);
+        Assertions.assertEquals(results, Map.of(1, QuantityAdjustments.ADJUSTED, 2, QuantityAdjustments.INSUFFICIENT_QUANTITY,
+                3, QuantityAdjustments.ADJUSTED, 99, QuantityAdjustments.NOT_FOUND));
+        Assertions.assertEquals(List.copyOf(results.keySet()), List.of(1, 2, 3, 99));
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 35);
+        Assertions.assertEquals(this.stock.getProductById(2).getQuantity(), 20);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 0);
+        Assertions.assertEquals(this.stock.getInventoryTotals().getQuantity(), 55);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+        Assertions.assertTrue(this.stock.adjustProductsQuantity(new LinkedHashMap<>()).isEmpty());
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:stock-database/src/main/resources/testStock.db");
+        connection.createStatement().execute("ALTER TABLE products RENAME TO products_moved");
+        Assertions.assertThrows(SQLException.class, () -> this.stock.adjustProductsQuantity(Map.of(1, 1, 99, 1)));
+        connection.createStatement().execute("ALTER TABLE products_moved RENAME TO products");
+        connection.close();
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 35);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+    }
+
+    @Test
+    public void versionTest() throws SQLException, ClassNotFoundException {
+        Product product = this.stock.getProductById(1);
+        Assertions.assertEquals(product.getVersion(), 1);
+        product.setPrice(5);
+        Assertions.assertEquals(this.stock.updateProduct(product), 1);
+        Assertions.assertEquals(this.stock.getProductById(1).getVersion(), 2);
+        product.setPrice(6);
+        Assertions.assertEquals(this.stock.updateProduct(product), Stock.VERSION_CONFLICT);
+        Assertions.assertEquals(this.stock.getProductById(1).getPrice(), 5);
+        product.setProductId(99);
+        Assertions.assertEquals(this.stock.updateProduct(product), 0);
+        this.stock.increaseProductQuantity(1, 1);
+        this.stock.pickOrder(Map.of(1, 1));
+        Assertions.assertEquals(this.stock.getProductById(1).getVersion(), 4);
+        Assertions.assertEquals(this.stock.updateProduct(new Product(1, 1, "Product1", "Product1", "Product1", 7, 30)), 1);
+        Assertions.assertEquals(this.stock.getProductById(1).getVersion(), 5);
+        Group group = this.stock.getGroupById(2);
+        group.setDescription("Changed");
+        Assertions.assertEquals(this.stock.updateGroup(group), 1);
+        Assertions.assertEquals(this.stock.updateGroup(group), Stock.VERSION_CONFLICT);
+        Assertions.assertEquals(this.stock.getGroupById(2).getVersion(), 2);
+        this.stock.close();
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:stock-database/src/main/resources/testStock.db");
+        connection.createStatement().execute("ALTER TABLE products DROP COLUMN version");
+        connection.close();
+        this.stock = new Stock("stock-database/src/main/resources/testStock.db");
+        Assertions.assertTrue(this.stock.getProducts().stream().allMatch(p -> p.getVersion() == 1));
+        Assertions.assertEquals(this.stock.getGroupById(2).getVersion(), 2);
+    }
+
+    @Test
+    public void changeLogTest() throws SQLException {
+        ChangeLog log = this.stock.getChangeLog();
+        long revision = log.getRevision();
+        ChangeSet changes = log.getChangesSince(revision - 6);
+        Assertions.assertFalse(changes.isResyncRequired());
+        Assertions.assertEquals(changes.getChanges().size(), 6);
+        Assertions.assertEquals(changes.getChanges().get(0).getType(), Change.GROUP_INSERTED);
+        Assertions.assertEquals(changes.getChanges().get(5).getType(), Change.PRODUCT_INSERTED);
+        Assertions.assertEquals(changes.getChanges().get(5).getProduct(), this.stock.getProductById(3));
+        Assertions.assertEquals(changes.getChanges().get(5).getRevision(), revision);
+        Assertions.assertTrue(log.getChangesSince(revision - 7).isResyncRequired());
+        Assertions.assertTrue(log.getChangesSince(revision + 1).isResyncRequired());
+        Assertions.assertTrue(log.getChangesSince(revision).getChanges().isEmpty());
+        this.stock.decreaseProductQuantity(1, 5);
+        this.stock.pickOrder(Map.of(1, 1, 3, 20));
+        this.stock.insertGroups(List.of(new Group(0, "Group1", "Group1"), new Group(0, "Group4", "Group4")));
+        this.stock.deleteGroupById(1);
+        this.stock.deleteProductById(42);
+        List<Change> list = log.getChangesSince(revision).getChanges();
+        Assertions.assertEquals(list.size(), 5);
+        Assertions.assertEquals(list.get(0).getType(), Change.QUANTITY_CHANGED);
+        Assertions.assertEquals(list.get(0).getQuantityDelta(), -5);
+        Assertions.assertEquals(list.get(0).getProduct().getQuantity(), 25);
+        Assertions.assertEquals(list.get(0).getProduct().getVersion(), 2);
+        Assertions.assertEquals(list.get(1).getType(), Change.GROUP_INSERTED);
+        Assertions.assertEquals(list.get(1).getGroup().getName(), "Group4");
+        Assertions.assertEquals(list.get(2).getType(), Change.PRODUCT_DELETED);
+        Assertions.assertEquals(list.get(3).getType(), Change.PRODUCT_DELETED);
+        Assertions.assertEquals(list.get(4).getType(), Change.GROUP_DELETED);
+        Assertions.assertEquals(list.get(4).getId(), 1);
+        ChangeLog bounded = new ChangeLog(2);
+        long start = bounded.getRevision();
+        bounded.append(List.of(new Change(), new Change(), new Change()));
+        Assertions.assertTrue(bounded.getChangesSince(start).isResyncRequired());
+        Assertions.assertEquals(bounded.getChangesSince(start + 1).getChanges().size(), 2);
+        Assertions.assertEquals(bounded.getTruncated(), 1);
+        List<Long> notified = new ArrayList<>();
+        bounded.addListener(() -> notified.add(bounded.getRevision()));
+        long before = bounded.getRevision();
+        bounded.reset();
+        Assertions.assertEquals(bounded.getRevision(), before + 1);
+        Assertions.assertEquals(notified, List.of(before + 1));
+        Assertions.assertTrue(bounded.getChangesSince(before).isResyncRequired());
+        Assertions.assertTrue(bounded.getChangesSince(before + 1).getChanges().isEmpty());
+        Assertions.assertEquals(bounded.size(), 0);
+        Assertions.assertEquals(bounded.getTruncated(), 3);
+    }
+
+    @Test
+    public void cachingStockTest() throws SQLException, ClassNotFoundException {
+        this.stock.close();
+        CachingStock cache = new CachingStock("stock-database/src/main/resources/testStock.db", 2);
+        this.stock = cache;
+        Assertions.assertEquals(cache.getProductById(1).getQuantity(), 30);
+        cache.getProductById(1).setQuantity(0);
+        Assertions.assertEquals(cache.getProductById(1).getQuantity(), 30);
+        Assertions.assertEquals(cache.getProductMisses(), 1);
+        Assertions.assertEquals(cache.getProductHits(), 2);
+        cache.decreaseProductQuantity(1, 5);
+        Assertions.assertEquals(cache.getProductById(1).getQuantity(), 25);
+        cache.pickOrder(Map.of(1, 5));
+        cache.adjustProductsQuantity(Map.of(1, 1));
+        Assertions.assertEquals(cache.getProductById(1).getQuantity(), 21);
+        Product product = cache.getProductById(1);
+        product.setName("Renamed");
+        cache.updateProduct(product);
+        Assertions.assertEquals(cache.getProductById(1).getName(), "Renamed");
+        Assertions.assertEquals(cache.getProductById(1).getVersion(), 5);
+        cache.getProductById(2);
+        cache.getProductById(3);
+        Assertions.assertEquals(cache.getCachedProducts(), 2);
+        Assertions.assertEquals(cache.getProductEvictions(), 1);
+        Assertions.assertEquals(cache.getGroups().size(), 3);
+        cache.insertGroup(new Group(4, "Group4", "Group4"));
+        Assertions.assertEquals(cache.getGroups().size(), 4);
+        Assertions.assertEquals(cache.getGroups().size(), 4);
+        Assertions.assertEquals(cache.getGroupsSnapshotHits(), 1);
+        Group group = cache.getGroupById(2);
+        group.setName("Renamed2");
+        cache.updateGroup(group);
+        Assertions.assertEquals(cache.getGroupById(2).getName(), "Renamed2");
+        Assertions.assertEquals(cache.getGroups().get(1).getName(), "Renamed2");
+        Assertions.assertNotNull(cache.getProductById(3));
+        cache.deleteGroupsByIds(new int[]{2});
+        Assertions.assertNull(cache.getProductById(3));
+        Assertions.assertNull(cache.getGroupById(2));
+        Assertions.assertEquals(cache.getGroups().size(), 3);
+        Assertions.assertTrue(cache.getHitRatio() > 0);
+    }
+
+    @Test
+    public void pickOrderTest() throws SQLException {
+        Map<Integer, Integer> failures = this.stock.pickOrder(Map.of(1, 10, 2, 25, 3, 5, 99, 1));
+        Assertions.assertEquals(failures, Map.of(2, QuantityAdjustments.INSUFFICIENT_QUANTITY, 99, QuantityAdjustments.NOT_FOUND));
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 30);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 10);
+        Assertions.assertEquals(this.stock.pickOrder(Map.of(1, 0)), Map.of(1, QuantityAdjustments.INVALID_QUANTITY));
+        Assertions.assertTrue(this.stock.pickOrder(Map.of(1, 10, 2, 20, 3, 10)).isEmpty());
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 20);
+        Assertions.assertEquals(this.stock.getProductById(2).getQuantity(), 0);
+        Assertions.assertEquals(this.stock.getProductById(3).getQuantity(), 0);
+        Assertions.assertEquals(this.stock.getInventoryTotals().getQuantity(), 20);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:stock-database/src/main/resources/testStock.db");
+        connection.createStatement().execute("ALTER TABLE products RENAME TO products_moved");
+        Assertions.assertThrows(SQLException.class, () -> this.stock.pickOrder(Map.of(1, 5)));
+        connection.createStatement().execute("ALTER TABLE products_moved RENAME TO products");
+        connection.close();
+        Assertions.assertEquals(this.stock.getProductById(1).getQuantity(), 20);
+        Assertions.assertTrue(this.stock.verifyInventoryTotals());
+    }
+
 }
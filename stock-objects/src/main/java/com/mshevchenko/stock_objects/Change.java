@@ -0,0 +1,28 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class Change {
+
+    public static final int GROUP_INSERTED = 1;
+    public static final int GROUP_UPDATED = 2;
+    public static final int GROUP_DELETED = 3;
+    public static final int PRODUCT_INSERTED = 4;
+    public static final int PRODUCT_UPDATED = 5;
+    public static final int PRODUCT_DELETED = 6;
+    public static final int QUANTITY_CHANGED = 7;
+
+    private long revision;
+    private int type;
+    private int id;
+    private int quantityDelta;
+    private Group group;
+    private Product product;
+
+}
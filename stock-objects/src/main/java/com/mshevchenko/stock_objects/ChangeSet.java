@@ -0,0 +1,19 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class ChangeSet {
+
+    private long revision;
+    private boolean resyncRequired;
+    private List<Change> changes;
+
+}
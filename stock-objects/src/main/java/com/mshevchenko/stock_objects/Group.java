@@ -13,5 +13,11 @@ public class Group {
     private int groupId;
     private String name;
     private String description;
+    @EqualsAndHashCode.Exclude
+    private int version;
+
+    public Group(int groupId, String name, String description) {
+        this(groupId, name, description, 0);
+    }
 
 }
@@ -0,0 +1,18 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class GroupTotals {
+
+    private int groupId;
+    private int itemCount;
+    private long quantity;
+    private double value;
+
+}
@@ -0,0 +1,20 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class InventoryTotals {
+
+    private int itemCount;
+    private long quantity;
+    private double value;
+    private List<GroupTotals> groups;
+
+}
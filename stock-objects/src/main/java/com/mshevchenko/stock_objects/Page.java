@@ -0,0 +1,18 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class Page<T> {
+
+    private List<T> items;
+    private int nextCursor;
+
+}
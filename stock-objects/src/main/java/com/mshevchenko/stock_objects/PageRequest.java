@@ -0,0 +1,21 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class PageRequest<F> {
+
+    private int afterId;
+    private int size;
+    private F filter;
+
+    public PageRequest(int afterId, int size) {
+        this(afterId, size, null);
+    }
+
+}
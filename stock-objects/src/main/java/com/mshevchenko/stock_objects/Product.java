@@ -17,5 +17,11 @@ public class Product {
     private String producer;
     private double price;
     private int quantity;
+    @EqualsAndHashCode.Exclude
+    private int version;
+
+    public Product(int productId, int groupId, String name, String description, String producer, double price, int quantity) {
+        this(productId, groupId, name, description, producer, price, quantity, 0);
+    }
 
 }
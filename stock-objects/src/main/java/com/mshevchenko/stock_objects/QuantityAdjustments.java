@@ -0,0 +1,10 @@
+package com.mshevchenko.stock_objects;
+
+public abstract class QuantityAdjustments {
+
+    public static final int ADJUSTED = 1;
+    public static final int NOT_FOUND = 0;
+    public static final int INSUFFICIENT_QUANTITY = -1;
+    public static final int INVALID_QUANTITY = -2;
+
+}
@@ -0,0 +1,27 @@
+package com.mshevchenko.stock_objects;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class SortSpec {
+
+    public enum Column {
+        ID,
+        GROUP,
+        NAME,
+        PRODUCER,
+        PRICE,
+        QUANTITY,
+        VALUE
+    }
+
+    private Column column = Column.ID;
+    private boolean descending;
+    private int limit;
+
+}
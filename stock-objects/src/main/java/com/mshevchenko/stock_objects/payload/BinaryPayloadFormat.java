@@ -0,0 +1,29 @@
+package com.mshevchenko.stock_objects.payload;
+
+import java.io.IOException;
+
+public class BinaryPayloadFormat implements PayloadFormat {
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public <T> byte[] write(Schema<T> schema, T value) throws IOException {
+        BinaryWriter writer = new BinaryWriter();
+        schema.write(writer, value);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public <T> T read(Schema<T> schema, byte[] body) throws IOException {
+        BinaryReader reader = new BinaryReader(body);
+        T value = schema.read(reader);
+        if(reader.hasRemaining()) {
+            throw new IOException("trailing bytes in payload");
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.mshevchenko.stock_objects.payload;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryReader {
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    public BinaryReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    public BinaryReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() throws IOException {
+        require(1);
+        return this.buffer[this.position++] & 0xff;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varlong");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() throws IOException {
+        require(8);
+        long bits = 0;
+        for(int i = 0; i < 8; i++) {
+            bits |= (long) (this.buffer[this.position++] & 0xff) << (i * 8);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if(length == 0) {
+            return null;
+        }
+        length--;
+        require(length);
+        String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return value;
+    }
+
+    public int readLength() throws IOException {
+        int length = readVarInt();
+        if(length < 0 || length > this.limit - this.position) {
+            throw new IOException("malformed length");
+        }
+        return length;
+    }
+
+    public boolean hasRemaining() {
+        return this.position < this.limit;
+    }
+
+    private void require(int length) throws EOFException {
+        if(length < 0 || this.limit - this.position < length) {
+            throw new EOFException();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.mshevchenko.stock_objects.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+public class JsonPayloadFormat implements PayloadFormat {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonPayloadFormat() {
+        this(new ObjectMapper());
+    }
+
+    public JsonPayloadFormat(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public <T> byte[] write(Schema<T> schema, T value) throws IOException {
+        return this.objectMapper.writerFor(schema.getJsonType(this.objectMapper.getTypeFactory())).writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T read(Schema<T> schema, byte[] body) throws IOException {
+        return this.objectMapper.readValue(body, schema.getJsonType(this.objectMapper.getTypeFactory()));
+    }
+
+}
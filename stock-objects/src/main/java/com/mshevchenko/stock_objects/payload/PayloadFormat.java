@@ -0,0 +1,26 @@
+package com.mshevchenko.stock_objects.payload;
+
+import java.io.IOException;
+
+public interface PayloadFormat {
+
+    PayloadFormat JSON = new JsonPayloadFormat();
+    PayloadFormat BINARY = new BinaryPayloadFormat();
+
+    String getName();
+
+    <T> byte[] write(Schema<T> schema, T value) throws IOException;
+
+    <T> T read(Schema<T> schema, byte[] body) throws IOException;
+
+    static PayloadFormat forName(String name) {
+        if(JSON.getName().equalsIgnoreCase(name)) {
+            return JSON;
+        }
+        if(BINARY.getName().equalsIgnoreCase(name)) {
+            return BINARY;
+        }
+        return null;
+    }
+
+}
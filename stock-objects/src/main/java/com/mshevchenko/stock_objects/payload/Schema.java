@@ -0,0 +1,16 @@
+package com.mshevchenko.stock_objects.payload;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.io.IOException;
+
+public interface Schema<T> {
+
+    JavaType getJsonType(TypeFactory typeFactory);
+
+    void write(BinaryWriter writer, T value) throws IOException;
+
+    T read(BinaryReader reader) throws IOException;
+
+}
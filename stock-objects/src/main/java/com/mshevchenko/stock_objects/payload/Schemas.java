@@ -0,0 +1,429 @@
+package com.mshevchenko.stock_objects.payload;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.mshevchenko.stock_objects.Change;
+import com.mshevchenko.stock_objects.ChangeSet;
+import com.mshevchenko.stock_objects.Group;
+import com.mshevchenko.stock_objects.GroupTotals;
+import com.mshevchenko.stock_objects.InventoryTotals;
+import com.mshevchenko.stock_objects.Page;
+import com.mshevchenko.stock_objects.PageRequest;
+import com.mshevchenko.stock_objects.Pair;
+import com.mshevchenko.stock_objects.Product;
+import com.mshevchenko.stock_objects.SortSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class Schemas {
+
+    public static final Schema<Integer> INT = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(Integer.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, Integer value) {
+            writer.writeSignedVarInt(value);
+        }
+
+        @Override
+        public Integer read(BinaryReader reader) throws IOException {
+            return reader.readSignedVarInt();
+        }
+    };
+
+    public static final Schema<Long> LONG = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(Long.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, Long value) {
+            writer.writeSignedVarLong(value);
+        }
+
+        @Override
+        public Long read(BinaryReader reader) throws IOException {
+            return reader.readSignedVarLong();
+        }
+    };
+
+    public static final Schema<String> STRING = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(String.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, String value) {
+            writer.writeString(value);
+        }
+
+        @Override
+        public String read(BinaryReader reader) throws IOException {
+            return reader.readString();
+        }
+    };
+
+    public static final Schema<int[]> INT_ARRAY = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(int[].class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, int[] value) {
+            writer.writeVarInt(value.length);
+            for(int i : value) {
+                writer.writeSignedVarInt(i);
+            }
+        }
+
+        @Override
+        public int[] read(BinaryReader reader) throws IOException {
+            int[] value = new int[reader.readLength()];
+            for(int i = 0; i < value.length; i++) {
+                value[i] = reader.readSignedVarInt();
+            }
+            return value;
+        }
+    };
+
+    public static final Schema<String[]> STRING_ARRAY = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(String[].class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, String[] value) {
+            writer.writeVarInt(value.length);
+            for(String s : value) {
+                writer.writeString(s);
+            }
+        }
+
+        @Override
+        public String[] read(BinaryReader reader) throws IOException {
+            String[] value = new String[reader.readLength()];
+            for(int i = 0; i < value.length; i++) {
+                value[i] = reader.readString();
+            }
+            return value;
+        }
+    };
+
+    public static final Schema<Group> GROUP = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(Group.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, Group value) {
+            writer.writeSignedVarInt(value.getGroupId());
+            writer.writeString(value.getName());
+            writer.writeString(value.getDescription());
+            writer.writeSignedVarInt(value.getVersion());
+        }
+
+        @Override
+        public Group read(BinaryReader reader) throws IOException {
+            return new Group(reader.readSignedVarInt(), reader.readString(), reader.readString(), reader.readSignedVarInt());
+        }
+    };
+
+    public static final Schema<Product> PRODUCT = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(Product.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, Product value) {
+            writer.writeSignedVarInt(value.getProductId());
+            writer.writeSignedVarInt(value.getGroupId());
+            writer.writeString(value.getName());
+            writer.writeString(value.getDescription());
+            writer.writeString(value.getProducer());
+            writer.writeDouble(value.getPrice());
+            writer.writeSignedVarInt(value.getQuantity());
+            writer.writeSignedVarInt(value.getVersion());
+        }
+
+        @Override
+        public Product read(BinaryReader reader) throws IOException {
+            return new Product(reader.readSignedVarInt(), reader.readSignedVarInt(), reader.readString(),
+                    reader.readString(), reader.readString(), reader.readDouble(), reader.readSignedVarInt(),
+                    reader.readSignedVarInt());
+        }
+    };
+
+    public static final Schema<SortSpec> SORT_SPEC = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(SortSpec.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, SortSpec value) {
+            writer.writeVarInt(value.getColumn() == null ? 0 : value.getColumn().ordinal());
+            writer.writeBoolean(value.isDescending());
+            writer.writeVarInt(value.getLimit());
+        }
+
+        @Override
+        public SortSpec read(BinaryReader reader) throws IOException {
+            int column = reader.readVarInt();
+            if(column < 0 || column >= SortSpec.Column.values().length) {
+                throw new IOException("unknown sort column " + column);
+            }
+            return new SortSpec(SortSpec.Column.values()[column], reader.readBoolean(), reader.readVarInt());
+        }
+    };
+
+    public static final Schema<GroupTotals> GROUP_TOTALS = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(GroupTotals.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, GroupTotals value) {
+            writer.writeSignedVarInt(value.getGroupId());
+            writer.writeVarInt(value.getItemCount());
+            writer.writeSignedVarLong(value.getQuantity());
+            writer.writeDouble(value.getValue());
+        }
+
+        @Override
+        public GroupTotals read(BinaryReader reader) throws IOException {
+            return new GroupTotals(reader.readSignedVarInt(), reader.readVarInt(), reader.readSignedVarLong(), reader.readDouble());
+        }
+    };
+
+    public static final Schema<InventoryTotals> INVENTORY_TOTALS = new Schema<>() {
+        private final Schema<List<GroupTotals>> groups = listOf(GROUP_TOTALS);
+
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(InventoryTotals.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, InventoryTotals value) throws IOException {
+            writer.writeVarInt(value.getItemCount());
+            writer.writeSignedVarLong(value.getQuantity());
+            writer.writeDouble(value.getValue());
+            this.groups.write(writer, value.getGroups());
+        }
+
+        @Override
+        public InventoryTotals read(BinaryReader reader) throws IOException {
+            return new InventoryTotals(reader.readVarInt(), reader.readSignedVarLong(), reader.readDouble(), this.groups.read(reader));
+        }
+    };
+
+    public static final Schema<Change> CHANGE = new Schema<>() {
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(Change.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, Change value) throws IOException {
+            writer.writeSignedVarLong(value.getRevision());
+            writer.writeVarInt(value.getType());
+            writer.writeSignedVarInt(value.getId());
+            writer.writeSignedVarInt(value.getQuantityDelta());
+            writer.writeBoolean(value.getGroup() != null);
+            if(value.getGroup() != null) {
+                GROUP.write(writer, value.getGroup());
+            }
+            writer.writeBoolean(value.getProduct() != null);
+            if(value.getProduct() != null) {
+                PRODUCT.write(writer, value.getProduct());
+            }
+        }
+
+        @Override
+        public Change read(BinaryReader reader) throws IOException {
+            long revision = reader.readSignedVarLong();
+            int type = reader.readVarInt();
+            int id = reader.readSignedVarInt();
+            int quantityDelta = reader.readSignedVarInt();
+            Group group = reader.readBoolean() ? GROUP.read(reader) : null;
+            Product product = reader.readBoolean() ? PRODUCT.read(reader) : null;
+            return new Change(revision, type, id, quantityDelta, group, product);
+        }
+    };
+
+    public static final Schema<ChangeSet> CHANGE_SET = new Schema<>() {
+        private final Schema<List<Change>> changes = listOf(CHANGE);
+
+        @Override
+        public JavaType getJsonType(TypeFactory typeFactory) {
+            return typeFactory.constructType(ChangeSet.class);
+        }
+
+        @Override
+        public void write(BinaryWriter writer, ChangeSet value) throws IOException {
+            writer.writeSignedVarLong(value.getRevision());
+            writer.writeBoolean(value.isResyncRequired());
+            this.changes.write(writer, value.getChanges());
+        }
+
+        @Override
+        public ChangeSet read(BinaryReader reader) throws IOException {
+            return new ChangeSet(reader.readSignedVarLong(), reader.readBoolean(), this.changes.read(reader));
+        }
+    };
+
+    public static final Schema<List<Group>> GROUPS = listOf(GROUP);
+    public static final Schema<List<Product>> PRODUCTS = listOf(PRODUCT);
+    public static final Schema<List<String[]>> ROWS = listOf(STRING_ARRAY);
+    public static final Schema<Pair<Integer, Integer>> ID_VALUE = pairOf(INT, INT);
+    public static final Schema<Pair<int[], Integer>> IDS_VALUE = pairOf(INT_ARRAY, INT);
+    public static final Schema<Map<Integer, Integer>> ID_VALUES = mapOf(INT, INT);
+    public static final Schema<Pair<Product, SortSpec>> SORTED_PRODUCTS_REQUEST = pairOf(PRODUCT, SORT_SPEC);
+    public static final Schema<PageRequest<Group>> GROUPS_PAGE_REQUEST = pageRequestOf(GROUP);
+    public static final Schema<PageRequest<Product>> PRODUCTS_PAGE_REQUEST = pageRequestOf(PRODUCT);
+    public static final Schema<Page<Group>> GROUPS_PAGE = pageOf(GROUP);
+    public static final Schema<Page<Product>> PRODUCTS_PAGE = pageOf(PRODUCT);
+    public static final Schema<Page<String[]>> ROWS_PAGE = pageOf(STRING_ARRAY);
+
+    private Schemas() {
+    }
+
+    public static <T> Schema<List<T>> listOf(Schema<T> element) {
+        return new Schema<>() {
+            @Override
+            public JavaType getJsonType(TypeFactory typeFactory) {
+                return typeFactory.constructCollectionType(List.class, element.getJsonType(typeFactory));
+            }
+
+            @Override
+            public void write(BinaryWriter writer, List<T> value) throws IOException {
+                writer.writeVarInt(value.size());
+                for(T t : value) {
+                    element.write(writer, t);
+                }
+            }
+
+            @Override
+            public List<T> read(BinaryReader reader) throws IOException {
+                int size = reader.readLength();
+                List<T> value = new ArrayList<>(size);
+                for(int i = 0; i < size; i++) {
+                    value.add(element.read(reader));
+                }
+                return value;
+            }
+        };
+    }
+
+    public static <A, B> Schema<Pair<A, B>> pairOf(Schema<A> first, Schema<B> second) {
+        return new Schema<>() {
+            @Override
+            public JavaType getJsonType(TypeFactory typeFactory) {
+                return typeFactory.constructParametricType(Pair.class,
+                        first.getJsonType(typeFactory), second.getJsonType(typeFactory));
+            }
+
+            @Override
+            public void write(BinaryWriter writer, Pair<A, B> value) throws IOException {
+                first.write(writer, value.getFirst());
+                second.write(writer, value.getSecond());
+            }
+
+            @Override
+            public Pair<A, B> read(BinaryReader reader) throws IOException {
+                return new Pair<>(first.read(reader), second.read(reader));
+            }
+        };
+    }
+
+    public static <K, V> Schema<Map<K, V>> mapOf(Schema<K> key, Schema<V> value) {
+        return new Schema<>() {
+            @Override
+            public JavaType getJsonType(TypeFactory typeFactory) {
+                return typeFactory.constructMapType(Map.class, key.getJsonType(typeFactory), value.getJsonType(typeFactory));
+            }
+
+            @Override
+            public void write(BinaryWriter writer, Map<K, V> map) throws IOException {
+                writer.writeVarInt(map.size());
+                for(Map.Entry<K, V> entry : map.entrySet()) {
+                    key.write(writer, entry.getKey());
+                    value.write(writer, entry.getValue());
+                }
+            }
+
+            @Override
+            public Map<K, V> read(BinaryReader reader) throws IOException {
+                int size = reader.readLength();
+                Map<K, V> map = new LinkedHashMap<>();
+                for(int i = 0; i < size; i++) {
+                    map.put(key.read(reader), value.read(reader));
+                }
+                return map;
+            }
+        };
+    }
+
+    public static <F> Schema<PageRequest<F>> pageRequestOf(Schema<F> filter) {
+        return new Schema<>() {
+            @Override
+            public JavaType getJsonType(TypeFactory typeFactory) {
+                return typeFactory.constructParametricType(PageRequest.class, filter.getJsonType(typeFactory));
+            }
+
+            @Override
+            public void write(BinaryWriter writer, PageRequest<F> value) throws IOException {
+                writer.writeSignedVarInt(value.getAfterId());
+                writer.writeSignedVarInt(value.getSize());
+                writer.writeBoolean(value.getFilter() != null);
+                if(value.getFilter() != null) {
+                    filter.write(writer, value.getFilter());
+                }
+            }
+
+            @Override
+            public PageRequest<F> read(BinaryReader reader) throws IOException {
+                int afterId = reader.readSignedVarInt();
+                int size = reader.readSignedVarInt();
+                F value = reader.readBoolean() ? filter.read(reader) : null;
+                return new PageRequest<>(afterId, size, value);
+            }
+        };
+    }
+
+    public static <T> Schema<Page<T>> pageOf(Schema<T> item) {
+        Schema<List<T>> items = listOf(item);
+        return new Schema<>() {
+            @Override
+            public JavaType getJsonType(TypeFactory typeFactory) {
+                return typeFactory.constructParametricType(Page.class, item.getJsonType(typeFactory));
+            }
+
+            @Override
+            public void write(BinaryWriter writer, Page<T> value) throws IOException {
+                items.write(writer, value.getItems());
+                writer.writeSignedVarInt(value.getNextCursor());
+            }
+
+            @Override
+            public Page<T> read(BinaryReader reader) throws IOException {
+                return new Page<>(items.read(reader), reader.readSignedVarInt());
+            }
+        };
+    }
+
+}